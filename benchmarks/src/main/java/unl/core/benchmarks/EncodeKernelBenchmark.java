@@ -0,0 +1,164 @@
+package unl.core.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unl.core.Bounds;
+import unl.core.UnlCore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bit-interleaving encode/bounds kernel with the per-bit bisection loops it replaced.
+ * The bisection methods below are verbatim copies of the previous UnlCore implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodeKernelBenchmark {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final int SAMPLES = 1024;
+
+    @Param({"6", "9", "12"})
+    public int precision;
+
+    private double[] lats;
+    private double[] lons;
+    private String[] locationIds;
+    private int i;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        lats = new double[SAMPLES];
+        lons = new double[SAMPLES];
+        locationIds = new String[SAMPLES];
+        for (int n = 0; n < SAMPLES; n++) {
+            lats[n] = random.nextDouble() * 180 - 90;
+            lons[n] = random.nextDouble() * 360 - 180;
+            locationIds[n] = UnlCore.encode(lats[n], lons[n], precision);
+        }
+    }
+
+    private int next() {
+        return i = (i + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public String encodeBisection() {
+        int n = next();
+        return bisectEncode(lats[n], lons[n], precision);
+    }
+
+    @Benchmark
+    public String encodeKernel() {
+        int n = next();
+        return UnlCore.encode(lats[n], lons[n], precision);
+    }
+
+    @Benchmark
+    public long encodeToLong() {
+        int n = next();
+        return UnlCore.encodeToLong(lats[n], lons[n], precision);
+    }
+
+    @Benchmark
+    public Bounds boundsBisection() {
+        return bisectBounds(locationIds[next()]);
+    }
+
+    @Benchmark
+    public Bounds boundsKernel() {
+        return UnlCore.bounds(locationIds[next()]);
+    }
+
+    private static String bisectEncode(double lat, double lon, int precision) {
+        int idx = 0;
+        int bit = 0;
+        boolean evenBit = true;
+        StringBuilder locationId = new StringBuilder();
+
+        double latMin = -90, latMax = 90;
+        double lonMin = -180, lonMax = 180;
+
+        while (locationId.length() < precision) {
+            if (evenBit) {
+                double lonMid = (lonMin + lonMax) / 2;
+                if (lon >= lonMid) {
+                    idx = idx * 2 + 1;
+                    lonMin = lonMid;
+                } else {
+                    idx = idx * 2;
+                    lonMax = lonMid;
+                }
+            } else {
+                double latMid = (latMin + latMax) / 2;
+                if (lat >= latMid) {
+                    idx = idx * 2 + 1;
+                    latMin = latMid;
+                } else {
+                    idx = idx * 2;
+                    latMax = latMid;
+                }
+            }
+
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                locationId.append(BASE32.charAt(idx));
+                bit = 0;
+                idx = 0;
+            }
+        }
+
+        return UnlCore.appendElevation(locationId.toString(), UnlCore.DEFAULT_ELEVATION);
+    }
+
+    private static Bounds bisectBounds(String locationId) {
+        String locationIdWithoutElevation = UnlCore.excludeElevation(locationId).getLocationId();
+
+        boolean evenBit = true;
+        double latMin = -90, latMax = 90;
+        double lonMin = -180, lonMax = 180;
+
+        for (int i = 0; i < locationIdWithoutElevation.length(); i++) {
+            int idx = BASE32.indexOf(locationIdWithoutElevation.charAt(i));
+            if (idx == -1) throw new IllegalArgumentException("Invalid locationId");
+
+            for (int n = 4; n >= 0; n--) {
+                int bitN = (idx >> n) & 1;
+                if (evenBit) {
+                    double lonMid = (lonMin + lonMax) / 2;
+                    if (bitN == 1) {
+                        lonMin = lonMid;
+                    } else {
+                        lonMax = lonMid;
+                    }
+                } else {
+                    double latMid = (latMin + latMax) / 2;
+                    if (bitN == 1) {
+                        latMin = latMid;
+                    } else {
+                        latMax = latMid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+
+        return new Bounds(latMax, lonMax, latMin, lonMin);
+    }
+}
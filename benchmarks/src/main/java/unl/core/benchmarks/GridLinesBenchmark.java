@@ -0,0 +1,66 @@
+package unl.core.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import unl.core.Bounds;
+import unl.core.UnlCore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grid lines of a view around Amsterdam, over the size of the view in degrees. The precision is chosen so the view
+ * holds a few hundred lines at each size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GridLinesBenchmark {
+    @Param({"0.01", "0.1", "1"})
+    public double size;
+
+    private Bounds bounds;
+    private int precision;
+    private double[] lines;
+
+    @Setup
+    public void setUp() {
+        bounds = new Bounds(52.37 + size, 4.9 + size, 52.37, 4.9);
+        precision = size < 0.1 ? 8 : size < 1 ? 7 : 6;
+        lines = new double[(int) UnlCore.gridLineCount(bounds, precision) * 4];
+    }
+
+    @Benchmark
+    public List<double[][]> gridLines() {
+        return UnlCore.gridLines(bounds, precision);
+    }
+
+    @Benchmark
+    public void gridLinesConsumer(Blackhole blackhole) {
+        UnlCore.gridLines(bounds, precision, (startLon, startLat, endLon, endLat) -> blackhole.consume(startLon + startLat + endLon + endLat));
+    }
+
+    @Benchmark
+    public int gridLinesArray() {
+        return UnlCore.gridLines(bounds, precision, lines);
+    }
+
+    @Benchmark
+    public long gridLineCount() {
+        return UnlCore.gridLineCount(bounds, precision);
+    }
+}
@@ -0,0 +1,77 @@
+package unl.core.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unl.core.LocationService;
+import unl.core.UnlCoreException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A call of the location endpoint served by a local server answering at once, measuring the client side of a call:
+ * connection handling, request and response reading.
+ * <p>
+ * The server sends the headers and the body of a response in separate writes, so it runs with TCP_NODELAY: with
+ * Nagle's algorithm the body waits for the delayed ACK of the headers, and every call takes about 40 ms.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+@State(Scope.Benchmark)
+public class LocationServiceBenchmark {
+    private static final byte[] LOCATION_JSON = ("{\"location\":{\"lat\":52.37686,\"lon\":4.90065,\"elevation\":0,\"elevationType\":\"floor\","
+            + "\"bounds\":{\"ne\":{\"lat\":52.3769,\"lon\":4.9007},\"sw\":{\"lat\":52.3768,\"lon\":4.9006}},"
+            + "\"geohash\":\"u173zq37x\",\"words\":\"apple.banana.cherry\"}}").getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String endpoint;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, LOCATION_JSON.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(LOCATION_JSON);
+            }
+        });
+        // a handler thread of its own, so the dispatcher thread goes back to accepting at once
+        executor = Executors.newSingleThreadExecutor();
+        server.setExecutor(executor);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/geohash/u173zq37x";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public String callEndpoint() throws UnlCoreException {
+        return LocationService.callEndpoint(endpoint, "key", 1000, 1000);
+    }
+}
@@ -0,0 +1,107 @@
+package unl.core.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unl.core.Bounds;
+import unl.core.Elevation;
+import unl.core.LocationIdWithElevation;
+import unl.core.MutableCell;
+import unl.core.Neighbours;
+import unl.core.PointWithElevation;
+import unl.core.UnlCore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-locationId methods of UnlCore, over the precision and the elevation suffix of the locationIds.
+ * Run with {@code -prof gc} to measure the bytes allocated per call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UnlCoreBenchmark {
+    private static final int SAMPLES = 1024;
+    private static final String[] DIRECTIONS = {"n", "e", "s", "w"};
+
+    @Param({"6", "9", "12"})
+    public int precision;
+
+    @Param({"", "@3", "#87"})
+    public String elevation;
+
+    private double[] lats;
+    private double[] lons;
+    private String[] locationIds;
+    private Elevation elevationObject;
+    private final MutableCell cell = new MutableCell();
+    private int i;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        lats = new double[SAMPLES];
+        lons = new double[SAMPLES];
+        locationIds = new String[SAMPLES];
+        for (int n = 0; n < SAMPLES; n++) {
+            lats[n] = random.nextDouble() * 180 - 90;
+            lons[n] = random.nextDouble() * 360 - 180;
+            locationIds[n] = UnlCore.encode(lats[n], lons[n], precision) + elevation;
+        }
+        elevationObject = UnlCore.excludeElevation(locationIds[0]).getElevation();
+    }
+
+    private int next() {
+        return i = (i + 1) & (SAMPLES - 1);
+    }
+
+    @Benchmark
+    public String encode() {
+        int n = next();
+        return UnlCore.encode(lats[n], lons[n], precision, elevationObject);
+    }
+
+    @Benchmark
+    public PointWithElevation decode() {
+        return UnlCore.decode(locationIds[next()]);
+    }
+
+    @Benchmark
+    public MutableCell decodeInto() {
+        return UnlCore.decodeInto(locationIds[next()], cell);
+    }
+
+    @Benchmark
+    public Bounds bounds() {
+        return UnlCore.bounds(locationIds[next()]);
+    }
+
+    @Benchmark
+    public String adjacent() {
+        int n = next();
+        return UnlCore.adjacent(locationIds[n], DIRECTIONS[n & 3]);
+    }
+
+    @Benchmark
+    public Neighbours neighbours() {
+        return UnlCore.neighbours(locationIds[next()]);
+    }
+
+    @Benchmark
+    public LocationIdWithElevation excludeElevation() {
+        return UnlCore.excludeElevation(locationIds[next()]);
+    }
+}
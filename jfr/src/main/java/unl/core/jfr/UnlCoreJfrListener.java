@@ -0,0 +1,123 @@
+package unl.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import unl.core.UnlCoreListener;
+
+import java.nio.file.Path;
+
+/**
+ * Listener emitting Java Flight Recorder events for the calls to the location endpoints and the bulk encodes, so they
+ * show up next to the thread, socket and GC events of a recording.
+ * <p>
+ * The events are disabled unless a recording enables them, e.g. with the default or profile settings, and are named
+ * unl.core.EndpointCall and unl.core.BulkEncode. Encode and decode calls emit no events, as an event per call would
+ * cost more than the call; count them with {@link unl.core.UnlCoreMetrics}.
+ * <p>
+ * It lives in the optional core-jfr module, as the jdk.jfr API it compiles against is part of JDK 11 and later and
+ * of JDK 8 from 8u262 only, so the core library builds and runs without Flight Recorder.
+ *
+ * @example UnlCore.setListener(new UnlCoreJfrListener()); // then java -XX:StartFlightRecording ...
+ */
+public class UnlCoreJfrListener implements UnlCoreListener {
+    private final ThreadLocal<EndpointCallEvent> endpointCalls = new ThreadLocal<>();
+    private final ThreadLocal<BulkEncodeEvent> bulkEncodes = new ThreadLocal<>();
+
+    @Override
+    public void onEndpointCallStart(@NotNull String endpoint) {
+        EndpointCallEvent event = new EndpointCallEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            endpointCalls.set(event);
+        }
+    }
+
+    @Override
+    public void onEndpointCall(@NotNull String endpoint, int status, long durationNanos, long responseBytes, @Nullable Exception error) {
+        EndpointCallEvent event = endpointCalls.get();
+        if (event == null) {
+            return;
+        }
+        endpointCalls.remove();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint;
+            event.status = status;
+            event.responseBytes = responseBytes;
+            event.error = error == null ? null : error.getMessage();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onBulkEncodeStart(@NotNull Path input) {
+        BulkEncodeEvent event = new BulkEncodeEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            bulkEncodes.set(event);
+        }
+    }
+
+    @Override
+    public void onBulkEncode(@NotNull Path input, long points, long inputBytes, long durationNanos) {
+        BulkEncodeEvent event = bulkEncodes.get();
+        if (event == null) {
+            return;
+        }
+        bulkEncodes.remove();
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.input = input.toString();
+            event.points = points;
+            event.inputBytes = inputBytes;
+            event.commit();
+        }
+    }
+
+    @Name("unl.core.EndpointCall")
+    @Label("Location Endpoint Call")
+    @Description("A call to a location endpoint, from the request to the end of the response body")
+    @Category({"UNL", "Core"})
+    @StackTrace
+    static final class EndpointCallEvent extends Event {
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Status")
+        @Description("The HTTP status, -1 if no valid response was received")
+        int status;
+
+        @Label("Response Size")
+        @DataAmount
+        long responseBytes;
+
+        @Label("Error")
+        String error;
+    }
+
+    @Name("unl.core.BulkEncode")
+    @Label("Bulk Encode")
+    @Description("The encode of a file of coordinates to locationIds")
+    @Category({"UNL", "Core"})
+    static final class BulkEncodeEvent extends Event {
+        @Label("Input")
+        String input;
+
+        @Label("Points")
+        long points;
+
+        @Label("Input Size")
+        @DataAmount
+        long inputBytes;
+    }
+}
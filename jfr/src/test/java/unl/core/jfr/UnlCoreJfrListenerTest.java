@@ -0,0 +1,100 @@
+package unl.core.jfr;
+
+import com.sun.net.httpserver.HttpServer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import unl.core.BulkEncoder;
+import unl.core.LocationService;
+import unl.core.UnlCore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class UnlCoreJfrListenerTest {
+    private static final String LOCATION_JSON = "{\"location\":{\"lat\":52.37686,\"lon\":4.90065,\"elevation\":2,\"elevationType\":\"floor\","
+            + "\"bounds\":{\"ne\":{\"lat\":52.3769,\"lon\":4.9007},\"sw\":{\"lat\":52.3768,\"lon\":4.9006}},"
+            + "\"geohash\":\"u173zq37x\",\"words\":\"apple.banana.cherry\"}}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        /* Flight Recorder is missing before JDK 8u262 */
+        Assume.assumeNotNull(ClassLoader.getSystemResource("jdk/jfr/Recording.class"));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = LOCATION_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        UnlCore.setListener(new UnlCoreJfrListener());
+    }
+
+    @After
+    public void tearDown() {
+        UnlCore.setListener(null);
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void recordsEventsTest() throws Exception {
+        Path input = folder.getRoot().toPath().resolve("points.csv");
+        Files.write(input, "52.205,0.119\n57.64,10.41\n".getBytes(StandardCharsets.US_ASCII));
+        Path recordingFile = folder.getRoot().toPath().resolve("recording.jfr");
+
+        /* calls outside a recording emit nothing and leave no pending event */
+        LocationService.callEndpoint(baseUrl + "geohash/u173zq37x", "key", 1000, 1000);
+
+        try (Recording recording = new Recording()) {
+            recording.enable("unl.core.EndpointCall");
+            recording.enable("unl.core.BulkEncode");
+            recording.start();
+            LocationService.callEndpoint(baseUrl + "geohash/u173zq37x", "key", 1000, 1000);
+            BulkEncoder.encode(input, folder.getRoot().toPath().resolve("ids.csv"), 9, false);
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+        Assert.assertEquals(events.size(), 2);
+
+        RecordedEvent endpointCall = events.stream().filter(event -> event.getEventType().getName().equals("unl.core.EndpointCall")).findFirst().get();
+        Assert.assertEquals(endpointCall.getString("endpoint"), baseUrl + "geohash/u173zq37x");
+        Assert.assertEquals(endpointCall.getInt("status"), 200);
+        Assert.assertEquals(endpointCall.getLong("responseBytes"), LOCATION_JSON.length());
+        Assert.assertNull(endpointCall.getString("error"));
+        Assert.assertFalse(endpointCall.getDuration().isNegative());
+        Assert.assertNotNull(endpointCall.getStackTrace());
+
+        RecordedEvent bulkEncode = events.stream().filter(event -> event.getEventType().getName().equals("unl.core.BulkEncode")).findFirst().get();
+        Assert.assertEquals(bulkEncode.getString("input"), input.toString());
+        Assert.assertEquals(bulkEncode.getLong("points"), 2);
+        Assert.assertEquals(bulkEncode.getLong("inputBytes"), 25);
+    }
+}
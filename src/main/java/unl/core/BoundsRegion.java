@@ -0,0 +1,64 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The area inside n, e, s, w bounds. Bounds with w greater than e cross the antimeridian.
+ * Like cells, the bounds own their southern and western edges but not their northern and eastern ones,
+ * unless these lie on the north pole or the antimeridian, so that the bounds of a cell only relate to that cell.
+ */
+final class BoundsRegion implements CellRegion {
+    private final double north;
+    private final double east;
+    private final double south;
+    private final double west;
+
+    BoundsRegion(@NotNull Bounds bounds) {
+        if (Double.isNaN(bounds.getN()) || Double.isNaN(bounds.getE()) || Double.isNaN(bounds.getS()) || Double.isNaN(bounds.getW())
+                || bounds.getN() < bounds.getS()) {
+            throw new IllegalArgumentException("Invalid bounds");
+        }
+        this.north = bounds.getN();
+        this.east = bounds.getE();
+        this.south = bounds.getS();
+        this.west = bounds.getW();
+    }
+
+    @Override
+    public int relate(double s, double w, double n, double e) {
+        if (west <= east) {
+            return relate(s, w, n, e, west, east);
+        }
+        return Math.max(relate(s, w, n, e, west, 180), relate(s, w, n, e, -180, east));
+    }
+
+    /**
+     * Returns whether the point is inside the bounds, with the same edge ownership as cells.
+     */
+    boolean contains(double lat, double lon) {
+        if (lat < south || lat > north || (lat == north && north != 90)) {
+            return false;
+        }
+        boolean beforeEast = lon < east || (east == 180 && lon == 180);
+        return west <= east ? lon >= west && beforeEast : lon >= west || beforeEast;
+    }
+
+    private int relate(double s, double w, double n, double e, double boxWest, double boxEast) {
+        if (!overlaps(s, n, south, north, 90) || !overlaps(w, e, boxWest, boxEast, 180)) {
+            return DISJOINT;
+        }
+        if (s >= south && n <= north && w >= boxWest && e <= boxEast) {
+            return CONTAINS;
+        }
+        return INTERSECTS;
+    }
+
+    /**
+     * Returns whether the cell range [min, max) overlaps the bounds range [from, to). An empty bounds range
+     * overlaps the cell containing it, and ranges ending at limit include it.
+     */
+    private static boolean overlaps(double min, double max, double from, double to, double limit) {
+        boolean startsBefore = min < to || (min == to && (from == to || to == limit));
+        return startsBefore && (max > from || max == limit);
+    }
+}
@@ -0,0 +1,557 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Encodes files of coordinates to locationIds in bulk.
+ * <p>
+ * The input holds one point per line: either CSV, with the latitude and longitude as the first two fields, or
+ * NDJSON, with "lat" and "lon" members, the format being detected from the first char of the file. The output holds
+ * one line per point, in the same order and format: the locationId, optionally followed by the centre and the n, e,
+ * s, w bounds of its cell. Blank lines are skipped.
+ * <p>
+ * The input is split into chunks ending at line ends, each chunk is memory-mapped and encoded on the pool, and the
+ * encoded chunks are written as soon as the chunks before them are done, with a bounded number of chunks in flight.
+ * Numbers are parsed from the mapped bytes and the locationIds written as bytes, so the points go through no String.
+ * The centres and bounds are written with the shortest digits of Double.toString, appended to a reused StringBuilder,
+ * which allocates nothing, and then copied as bytes in plain notation; generating those digits straight into the
+ * bytes would mean a port of the JDK shortest-digits algorithm, whose output changed across JDK versions.
+ * <p>
+ * If the encoding fails, the chunks not started yet are cancelled, the ones being encoded are left to finish and
+ * dropped, and the output file is deleted, so a failed encode leaves no truncated output behind.
+ */
+public final class BulkEncoder {
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final byte[] LAT_MEMBER = "\"lat\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LON_MEMBER = "\"lon\"".getBytes(StandardCharsets.US_ASCII);
+
+    private BulkEncoder() {
+    }
+
+    /**
+     * Encodes a file of coordinates on the common pool, in chunks of the default size.
+     *
+     * @param input     the file of coordinates, CSV or NDJSON.
+     * @param output    the file of locationIds, overwritten if it exists, and deleted if the encoding fails.
+     * @param precision the number of characters of the locationIds.
+     * @param centres   whether to write the centre and bounds of each locationId after it.
+     * @return the number of points encoded.
+     * @throws IllegalArgumentException if a line holds no valid coordinates.
+     * @throws IOException              if a file cannot be read or written.
+     */
+    public static long encode(@NotNull Path input, @NotNull Path output, int precision, boolean centres) throws IOException {
+        return encode(input, output, precision, centres, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Encodes a file of coordinates on a pool.
+     *
+     * @param input     the file of coordinates, CSV or NDJSON.
+     * @param output    the file of locationIds, overwritten if it exists, and deleted if the encoding fails.
+     * @param precision the number of characters of the locationIds.
+     * @param centres   whether to write the centre and bounds of each locationId after it.
+     * @param pool      the pool encoding the chunks.
+     * @param chunkSize the approximate number of bytes of the chunks, which are extended to the next line end.
+     * @return the number of points encoded.
+     * @throws IllegalArgumentException if the precision or chunk size are invalid, or a line holds no valid
+     *                                  coordinates.
+     * @throws IOException              if a file cannot be read or written.
+     */
+    public static long encode(@NotNull Path input, @NotNull Path output, int precision, boolean centres, @NotNull ForkJoinPool pool, int chunkSize) throws IOException {
+        if (precision < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid precision or chunk size");
+        }
+
+        UnlCoreListener listener = UnlCore.getListener();
+        listener.onBulkEncodeStart(input);
+        long started = System.nanoTime();
+        long count = 0;
+        long size = 0;
+        ArrayDeque<CompletableFuture<Chunk>> inFlight = new ArrayDeque<>();
+        boolean truncated = false;
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            truncated = true;
+            size = in.size();
+            boolean json = isJson(in);
+            int maxInFlight = 2 * pool.getParallelism();
+
+            long start = 0;
+            while (start < size) {
+                long end = lineEnd(in, Math.min(size, start + chunkSize));
+                MappedByteBuffer bytes = in.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                long offset = start;
+                inFlight.add(CompletableFuture.supplyAsync(() -> encodeChunk(bytes, offset, json, precision, centres), pool));
+                start = end;
+
+                while (inFlight.size() >= maxInFlight || (start >= size && !inFlight.isEmpty())) {
+                    count += write(out, join(inFlight.poll()));
+                }
+            }
+            return count;
+        } catch (IOException | RuntimeException | Error e) {
+            // the chunks not started yet are skipped, the running ones cannot be stopped
+            for (CompletableFuture<Chunk> future : inFlight) {
+                future.cancel(false);
+            }
+            if (truncated) {
+                try {
+                    Files.deleteIfExists(output);
+                } catch (IOException deleteError) {
+                    e.addSuppressed(deleteError);
+                }
+            }
+            throw e;
+        } finally {
+            listener.onBulkEncode(input, count, size, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Encodes a file of coordinates: {@code BulkEncoder input output [precision] [--centres]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: BulkEncoder input output [precision] [--centres]");
+            System.exit(2);
+        }
+
+        int precision = UnlCore.DEFAULT_PRECISION;
+        boolean centres = false;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--centres")) {
+                centres = true;
+            } else {
+                precision = Integer.parseInt(args[i]);
+            }
+        }
+
+        long started = System.nanoTime();
+        long count = encode(Paths.get(args[0]), Paths.get(args[1]), precision, centres);
+        System.err.printf("Encoded %d points in %d ms%n", count, (System.nanoTime() - started) / 1000000);
+    }
+
+    /**
+     * Encodes the lines of a chunk, which starts at offset in the input.
+     */
+    @NotNull
+    private static Chunk encodeChunk(@NotNull ByteBuffer bytes, long offset, boolean json, int precision, boolean centres) {
+        Chunk chunk = new Chunk(bytes.limit() / 2);
+        AsciiSequence locationId = new AsciiSequence();
+        double[] cell = new double[6];
+        double[] point = new double[2];
+
+        int lineStart = 0;
+        int limit = bytes.limit();
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && bytes.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            if (!isBlank(bytes, lineStart, contentEnd)) {
+                boolean parsed = json ? parseJsonPoint(bytes, lineStart, contentEnd, point) : parseCsvPoint(bytes, lineStart, contentEnd, point);
+                if (!parsed) {
+                    throw new IllegalArgumentException("Invalid coordinates at byte " + (offset + lineStart));
+                }
+
+                if (json) {
+                    chunk.append("{\"locationId\":\"");
+                }
+                int idStart = chunk.size;
+                chunk.ensureCapacity(precision);
+                chunk.size += UnlCore.encodeInto(point[0], point[1], precision, UnlCore.DEFAULT_ELEVATION, chunk.bytes, chunk.size);
+                int idEnd = chunk.size;
+                if (json) {
+                    chunk.append('"');
+                }
+
+                if (centres) {
+                    locationId.set(chunk.bytes, idStart, idEnd - idStart);
+                    UnlCore.decodeInto(locationId, cell);
+                    if (json) {
+                        chunk.append(",\"lat\":").append(cell[0]).append(",\"lon\":").append(cell[1])
+                                .append(",\"bounds\":{\"n\":").append(cell[2]).append(",\"e\":").append(cell[3])
+                                .append(",\"s\":").append(cell[4]).append(",\"w\":").append(cell[5]).append('}');
+                    } else {
+                        for (double value : cell) {
+                            chunk.append(',').append(value);
+                        }
+                    }
+                }
+                if (json) {
+                    chunk.append('}');
+                }
+                chunk.append('\n');
+                chunk.count++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    private static boolean parseCsvPoint(@NotNull ByteBuffer bytes, int start, int end, @NotNull double[] point) {
+        int comma = indexOf(bytes, start, end, (byte) ',');
+        if (comma == -1) {
+            return false;
+        }
+        int lonEnd = indexOf(bytes, comma + 1, end, (byte) ',');
+        point[0] = parseDouble(bytes, start, comma);
+        point[1] = parseDouble(bytes, comma + 1, lonEnd == -1 ? end : lonEnd);
+        return !Double.isNaN(point[0]) && !Double.isNaN(point[1]);
+    }
+
+    private static boolean parseJsonPoint(@NotNull ByteBuffer bytes, int start, int end, @NotNull double[] point) {
+        point[0] = parseMember(bytes, start, end, LAT_MEMBER);
+        point[1] = parseMember(bytes, start, end, LON_MEMBER);
+        return !Double.isNaN(point[0]) && !Double.isNaN(point[1]);
+    }
+
+    /**
+     * Parses the number following the first occurrence of a member name and a colon, or returns NaN.
+     */
+    private static double parseMember(@NotNull ByteBuffer bytes, int start, int end, @NotNull byte[] name) {
+        for (int i = start; i <= end - name.length; i++) {
+            int j = 0;
+            while (j < name.length && bytes.get(i + j) == name[j]) {
+                j++;
+            }
+            if (j < name.length) {
+                continue;
+            }
+
+            int colon = skipWhitespace(bytes, i + name.length, end);
+            if (colon == end || bytes.get(colon) != ':') {
+                continue;
+            }
+            int numberStart = skipWhitespace(bytes, colon + 1, end);
+            int numberEnd = numberStart;
+            while (numberEnd < end && bytes.get(numberEnd) != ',' && bytes.get(numberEnd) != '}') {
+                numberEnd++;
+            }
+            return parseDouble(bytes, numberStart, numberEnd);
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Parses a decimal number surrounded by optional whitespace, or returns NaN.
+     * <p>
+     * Numbers of up to 15 significant digits with a small exponent are computed exactly from their digits, as one
+     * multiplication or division of two exactly representable doubles rounds correctly. The others, rare in
+     * coordinates, are parsed by Double.parseDouble.
+     */
+    static double parseDouble(@NotNull ByteBuffer bytes, int start, int end) {
+        start = skipWhitespace(bytes, start, end);
+        while (end > start && isWhitespace(bytes.get(end - 1))) {
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+            negative = bytes.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte chr = bytes.get(i);
+            if (chr == '.' && !point) {
+                point = true;
+            } else if (chr >= '0' && chr <= '9') {
+                digits++;
+                if (mantissa != 0 || chr != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits <= 18) {
+                    mantissa = mantissa * 10 + (chr - '0');
+                    if (point) {
+                        exponent--;
+                    }
+                } else if (!point) {
+                    exponent++;
+                }
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (i < end && (bytes.get(i) == 'e' || bytes.get(i) == 'E')) {
+            int exponentEnd = i + 1;
+            if (exponentEnd < end && (bytes.get(exponentEnd) == '-' || bytes.get(exponentEnd) == '+')) {
+                exponentEnd++;
+            }
+            int exponentDigits = exponentEnd;
+            int explicit = 0;
+            while (exponentEnd < end && bytes.get(exponentEnd) >= '0' && bytes.get(exponentEnd) <= '9') {
+                explicit = Math.min(explicit * 10 + (bytes.get(exponentEnd) - '0'), 100000);
+                exponentEnd++;
+            }
+            if (exponentEnd == exponentDigits) {
+                return Double.NaN;
+            }
+            exponent += bytes.get(i + 1) == '-' ? -explicit : explicit;
+            i = exponentEnd;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        if (significantDigits <= 15 && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        byte[] chars = new byte[end - start];
+        for (int j = 0; j < chars.length; j++) {
+            chars[j] = bytes.get(start + j);
+        }
+        return Double.parseDouble(new String(chars, StandardCharsets.US_ASCII));
+    }
+
+    private static boolean isJson(@NotNull FileChannel in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = 0;
+        while (in.read(buffer, position) > 0) {
+            for (int i = 0; i < buffer.position(); i++) {
+                if (!isWhitespace(buffer.get(i))) {
+                    return buffer.get(i) == '{';
+                }
+            }
+            position += buffer.position();
+            buffer.clear();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the offset following the first line end at or after position, or the size of the input.
+     */
+    private static long lineEnd(@NotNull FileChannel in, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (position < in.size()) {
+            buffer.clear();
+            int read = in.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return in.size();
+    }
+
+    private static long write(@NotNull FileChannel out, @NotNull Chunk chunk) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(chunk.bytes, 0, chunk.size);
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        return chunk.count;
+    }
+
+    @NotNull
+    private static Chunk join(@NotNull CompletableFuture<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static int indexOf(@NotNull ByteBuffer bytes, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (bytes.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(@NotNull ByteBuffer bytes, int start, int end) {
+        while (start < end && isWhitespace(bytes.get(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static boolean isBlank(@NotNull ByteBuffer bytes, int start, int end) {
+        return skipWhitespace(bytes, start, end) == end;
+    }
+
+    private static boolean isWhitespace(byte chr) {
+        return chr == ' ' || chr == '\t' || chr == '\r' || chr == '\n';
+    }
+
+    /**
+     * The encoded lines of a chunk, in a growable byte array.
+     */
+    private static final class Chunk {
+        private final StringBuilder digits = new StringBuilder(32);
+        byte[] bytes;
+        int size;
+        long count;
+
+        Chunk(int capacity) {
+            bytes = new byte[Math.max(capacity, 64)];
+        }
+
+        void ensureCapacity(int more) {
+            if (size + more > bytes.length) {
+                byte[] grown = new byte[Math.max(bytes.length * 2, size + more)];
+                System.arraycopy(bytes, 0, grown, 0, size);
+                bytes = grown;
+            }
+        }
+
+        Chunk append(char chr) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) chr;
+            return this;
+        }
+
+        Chunk append(@NotNull String ascii) {
+            ensureCapacity(ascii.length());
+            for (int i = 0; i < ascii.length(); i++) {
+                bytes[size++] = (byte) ascii.charAt(i);
+            }
+            return this;
+        }
+
+        /**
+         * Appends a double like BigDecimal.valueOf(value).toPlainString(): the digits of Double.toString in plain
+         * notation, as Double.toString switches to scientific notation below 0.001.
+         */
+        Chunk append(double value) {
+            if (value == 0) {
+                // including -0.0, which BigDecimal has no sign for
+                return append("0.0");
+            }
+            digits.setLength(0);
+            digits.append(value);
+            int length = digits.length();
+            int exponentAt = length - 1;
+            while (exponentAt >= 0 && digits.charAt(exponentAt) != 'E') {
+                exponentAt--;
+            }
+            ensureCapacity(length + 350);
+            if (exponentAt < 0) {
+                for (int i = 0; i < length; i++) {
+                    bytes[size++] = (byte) digits.charAt(i);
+                }
+                return this;
+            }
+
+            // d.dddEx: the digits, without the point, followed by the point at 1 + x
+            int exponent = 0;
+            boolean negativeExponent = digits.charAt(exponentAt + 1) == '-';
+            for (int i = negativeExponent ? exponentAt + 2 : exponentAt + 1; i < length; i++) {
+                exponent = exponent * 10 + (digits.charAt(i) - '0');
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+            int first = 0;
+            if (digits.charAt(0) == '-') {
+                bytes[size++] = '-';
+                first = 1;
+            }
+            int digitCount = exponentAt - first - 1;
+            int point = 1 + exponent;
+            if (point <= 0) {
+                bytes[size++] = '0';
+                bytes[size++] = '.';
+                for (int i = point; i < 0; i++) {
+                    bytes[size++] = '0';
+                }
+            }
+            for (int i = 0, j = first; i < digitCount; i++, j++) {
+                if (j == first + 1) {
+                    // skip the point of d.ddd
+                    j++;
+                }
+                if (i == point && point > 0) {
+                    bytes[size++] = '.';
+                }
+                bytes[size++] = (byte) digits.charAt(j);
+            }
+            for (int i = digitCount; i < point; i++) {
+                bytes[size++] = '0';
+            }
+            return this;
+        }
+    }
+
+    /**
+     * A reusable view of ASCII bytes as chars, to decode the locationIds written without making Strings of them.
+     */
+    private static final class AsciiSequence implements CharSequence {
+        private byte[] bytes;
+        private int offset;
+        private int length;
+
+        void set(@NotNull byte[] bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes[offset + index];
+        }
+
+        @NotNull
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(bytes, offset + start, end - start, StandardCharsets.US_ASCII);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.US_ASCII);
+        }
+    }
+}
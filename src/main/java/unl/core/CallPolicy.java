@@ -0,0 +1,246 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Resilience policy of the calls to the location endpoints: timeouts, retries with jittered exponential backoff,
+ * hedged requests and a circuit breaker.
+ * <p>
+ * A call is retried if it failed without a valid response, or with a 429 or 5xx status, as the location endpoints are
+ * idempotent GETs. The wait before a retry is random, between 0 and the backoff, which doubles after each attempt up
+ * to the maximum backoff. If hedging is on, a duplicate request is sent when a call takes longer than the given
+ * quantile of the latencies of the previous calls, and the first successful response wins. After a number of
+ * consecutive failed calls, the circuit breaker opens, and calls fail fast with an {@link UnlCoreException} until the
+ * open time has passed; then a single trial call closes it again if it succeeds.
+ * <p>
+ * The policy holds the circuit breaker and the latencies, so a single instance should be shared by all the calls to
+ * the same host. It is thread-safe.
+ */
+public final class CallPolicy {
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BACKOFF_MILLIS = 100;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 30000;
+
+    /**
+     * The number of latencies recorded before calls are hedged.
+     */
+    static final int MIN_HEDGE_SAMPLES = 20;
+
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final double hedgeQuantile;
+    private final int failureThreshold;
+    private final long openMillis;
+    @NotNull
+    private final LongSupplier clock;
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final UnlCoreMetrics.Histogram latencies = new UnlCoreMetrics.Histogram();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a policy with the default timeouts, 3 attempts with backoff from 100 ms to 2 s, no hedging, and a
+     * circuit breaker opening for 30 s after 5 consecutive failures.
+     */
+    public CallPolicy() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, DEFAULT_MAX_ATTEMPTS, DEFAULT_BACKOFF_MILLIS,
+                DEFAULT_MAX_BACKOFF_MILLIS, 0, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    /**
+     * Creates a policy with timeouts only: a single attempt, no hedging and no circuit breaker.
+     *
+     * @param connectTimeoutMillis the connect timeout in milliseconds, 0 for none.
+     * @param readTimeoutMillis    the read timeout in milliseconds, 0 for none.
+     * @throws IllegalArgumentException if the timeouts are negative.
+     */
+    public CallPolicy(int connectTimeoutMillis, int readTimeoutMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, 1, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates a policy.
+     *
+     * @param connectTimeoutMillis the connect timeout in milliseconds, 0 for none.
+     * @param readTimeoutMillis    the read timeout in milliseconds, 0 for none.
+     * @param maxAttempts          the maximum number of attempts of a call, 1 for no retries.
+     * @param backoffMillis        the backoff before the first retry, in milliseconds.
+     * @param maxBackoffMillis     the maximum backoff, in milliseconds.
+     * @param hedgeQuantile        the quantile of the latencies after which a duplicate request is sent, e.g. 0.95, or
+     *                             0 for no hedging.
+     * @param failureThreshold     the number of consecutive failed calls opening the circuit breaker, 0 for none.
+     * @param openMillis           the time the circuit breaker stays open, in milliseconds.
+     * @throws IllegalArgumentException if a value is out of range.
+     */
+    public CallPolicy(int connectTimeoutMillis, int readTimeoutMillis, int maxAttempts, long backoffMillis, long maxBackoffMillis,
+                      double hedgeQuantile, int failureThreshold, long openMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, maxAttempts, backoffMillis, maxBackoffMillis, hedgeQuantile,
+                failureThreshold, openMillis, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    CallPolicy(int connectTimeoutMillis, int readTimeoutMillis, int maxAttempts, long backoffMillis, long maxBackoffMillis,
+               double hedgeQuantile, int failureThreshold, long openMillis, @NotNull LongSupplier clock) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0 || maxAttempts < 1 || backoffMillis < 0
+                || maxBackoffMillis < backoffMillis || !(hedgeQuantile >= 0 && hedgeQuantile < 1)
+                || failureThreshold < 0 || openMillis < 0) {
+            throw new IllegalArgumentException("Invalid call policy");
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.hedgeQuantile = hedgeQuantile;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns whether the circuit breaker is open or half-open, failing calls fast.
+     */
+    public boolean isOpen() {
+        return state.get() != CLOSED;
+    }
+
+    /**
+     * Returns the number of retried attempts.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Returns the number of duplicate requests sent by hedging.
+     */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * Returns the number of calls failed fast by the open circuit breaker.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns whether a call failing with the exception may succeed if it is retried: it failed without a valid
+     * response, for instance on a timeout, or with a 429 or 5xx status.
+     */
+    static boolean isRetryable(@NotNull UnlCoreException e) {
+        int status = e.getStatus();
+        return status == 429 || status >= 500
+                || (e.getCause() instanceof IOException && !(e.getCause() instanceof MalformedURLException));
+    }
+
+    /**
+     * Returns whether a call may be made, moving an open circuit breaker whose open time has passed to half-open and
+     * letting the caller make the trial call.
+     */
+    boolean tryAcquire() {
+        int current = state.get();
+        if (current == CLOSED) {
+            return true;
+        }
+        if (current == OPEN) {
+            synchronized (this) {
+                if (state.get() == OPEN && clock.getAsLong() - openedAt.get() >= openMillis && state.compareAndSet(OPEN, HALF_OPEN)) {
+                    return true;
+                }
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Records a call that got a response the upstream meant, successful or not, closing the circuit breaker.
+     */
+    void onResponse(long latencyNanos) {
+        latencies.record(latencyNanos);
+        consecutiveFailures.set(0);
+        state.set(CLOSED);
+    }
+
+    /**
+     * Records a failed call, opening the circuit breaker after the threshold of consecutive failures, or right away
+     * if it was the trial call. Failures of calls still in flight when the breaker opened do not extend its open time.
+     */
+    void onFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (failureThreshold == 0) {
+            return;
+        }
+        int current = state.get();
+        if ((current == CLOSED && failures >= failureThreshold) || current == HALF_OPEN) {
+            // openedAt is only written with the transition, and read with it in tryAcquire
+            synchronized (this) {
+                if (state.compareAndSet(current, OPEN)) {
+                    openedAt.set(clock.getAsLong());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the random wait before an attempt, in milliseconds, with full jitter.
+     *
+     * @param attempt the number of the attempt, 1 for the first retry.
+     */
+    long backoffMillis(int attempt) {
+        long backoff = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempt - 1, 30));
+        retries.increment();
+        return backoff == 0 ? 0 : ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * Returns the time after which a duplicate request is sent, in nanoseconds, or -1 if calls are not hedged yet.
+     */
+    long hedgeDelayNanos() {
+        if (hedgeQuantile == 0 || latencies.getCount() < MIN_HEDGE_SAMPLES) {
+            return -1;
+        }
+        return latencies.getQuantile(hedgeQuantile);
+    }
+
+    void onHedge() {
+        hedges.increment();
+    }
+}
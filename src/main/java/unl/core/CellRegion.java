@@ -0,0 +1,18 @@
+package unl.core;
+
+/**
+ * A region of the earth surface that can be covered with cells.
+ */
+interface CellRegion {
+    int DISJOINT = 0;
+    int INTERSECTS = 1;
+    int CONTAINS = 2;
+
+    /**
+     * Returns how the region relates to the cell with the given bounds: DISJOINT if they have no point in common,
+     * CONTAINS if the region contains the whole cell and INTERSECTS otherwise. Cells own their southern and western
+     * edges, like encode does, so a cell that only touches the region with its northern or eastern edge is disjoint.
+     * It may return INTERSECTS for a cell it contains, when containment is too expensive to prove.
+     */
+    int relate(double s, double w, double n, double e);
+}
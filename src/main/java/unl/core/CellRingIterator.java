@@ -0,0 +1,132 @@
+package unl.core;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Walks the cells around a centre cell, ring by ring, without materializing them.
+ * <p>
+ * Ring r holds the cells whose distance to the centre is exactly r, where the distance is the larger of the
+ * latitude row difference and the longitude column difference measured around the antimeridian. Rows beyond
+ * the poles are skipped rather than clamped, and columns that wrap onto each other are visited once, so every
+ * cell is returned at most once. Rings are visited from the inside out, rows from south to north.
+ */
+final class CellRingIterator implements PrimitiveIterator.OfLong {
+    private final int precision;
+    private final int latIdx;
+    private final int lonIdx;
+    private final int maxLatIdx;
+    private final long lonMask;
+    private final long lonCells;
+    private final int lastRing;
+
+    private int ring;
+    private int dy;
+    private int dyHigh;
+    private int column;
+    private int columns;
+    private long firstColumn;
+    private long columnStep;
+
+    CellRingIterator(long key, int firstRing, int lastRing) {
+        if (firstRing < 0 || lastRing < firstRing) {
+            throw new IllegalArgumentException("Invalid ring");
+        }
+        this.precision = LocationIdCodec.precision(key);
+        long hashBits = LocationIdCodec.hashBits(key, precision);
+        this.latIdx = LocationIdCodec.latIndex(hashBits, precision);
+        this.lonIdx = LocationIdCodec.lonIndex(hashBits, precision);
+        this.maxLatIdx = (1 << LocationIdCodec.latBits(precision)) - 1;
+        this.lonCells = 1L << LocationIdCodec.lonBits(precision);
+        this.lonMask = lonCells - 1;
+        this.lastRing = lastRing;
+
+        startRing(firstRing);
+    }
+
+    /**
+     * Returns the number of cells in rings firstRing to lastRing around the key, without visiting them.
+     */
+    static long size(long key, int firstRing, int lastRing) {
+        int precision = LocationIdCodec.precision(key);
+        int latIdx = LocationIdCodec.latIndex(LocationIdCodec.hashBits(key, precision), precision);
+        int maxLatIdx = (1 << LocationIdCodec.latBits(precision)) - 1;
+        long lonCells = 1L << LocationIdCodec.lonBits(precision);
+
+        long size = 0;
+        for (int r = firstRing; r <= lastRing; r++) {
+            int dyLow = Math.max(-r, -latIdx);
+            int dyHigh = Math.min(r, maxLatIdx - latIdx);
+            if (dyLow > dyHigh) {
+                continue;
+            }
+
+            long edgeRows = r == 0 ? 1 : (dyLow == -r ? 1 : 0) + (dyHigh == r ? 1 : 0);
+            long middleRows = Math.max(0, Math.min(dyHigh, r - 1) - Math.max(dyLow, 1 - r) + 1);
+            size += edgeRows * Math.min(2L * r + 1, lonCells) + middleRows * middleColumns(r, lonCells);
+        }
+        return size;
+    }
+
+    private static int middleColumns(int ring, long lonCells) {
+        if (2L * ring < lonCells) {
+            return 2;
+        }
+        return 2L * ring == lonCells ? 1 : 0;
+    }
+
+    private void startRing(int r) {
+        ring = r;
+        dy = Math.max(-r, -latIdx) - 1;
+        dyHigh = Math.min(r, maxLatIdx - latIdx);
+        column = 0;
+        columns = 0;
+    }
+
+    private boolean nextRow() {
+        while (ring <= lastRing) {
+            dy++;
+            if (dy > dyHigh) {
+                if (ring == lastRing) {
+                    ring++;
+                    return false;
+                }
+                startRing(ring + 1);
+                continue;
+            }
+
+            column = 0;
+            if (dy == -ring || dy == ring) {
+                columns = (int) Math.min(2L * ring + 1, lonCells);
+                firstColumn = lonIdx - ring;
+                columnStep = 1;
+            } else {
+                columns = middleColumns(ring, lonCells);
+                firstColumn = columns == 2 ? lonIdx - ring : lonIdx + ring;
+                columnStep = 2L * ring;
+                if (columns == 0) {
+                    // only the northern edge row of this ring can still hold cells
+                    dy = Math.min(ring, dyHigh + 1) - 1;
+                    continue;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return column < columns || nextRow();
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int lon = (int) ((firstColumn + column * columnStep) & lonMask);
+        column++;
+        return LocationIdCodec.fromIndices(latIdx + dy, lon, precision);
+    }
+}
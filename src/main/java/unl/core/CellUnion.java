@@ -0,0 +1,110 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Compacts and expands sets of cells of mixed precisions, using the prefix structure of the locationId keys: the
+ * descendants of a cell are the keys between {@code key - lsb} and {@code key + lsb}, where lsb is the lowest set
+ * bit of the key, and its parent is found by moving that bit five places up.
+ */
+final class CellUnion {
+    private CellUnion() {
+    }
+
+    /**
+     * Returns the sorted keys of the smallest set of cells covering the same area as the given cells: duplicates and
+     * cells inside other cells are dropped, and every complete group of 32 siblings is replaced by its parent,
+     * repeatedly. Runs in linear time after sorting.
+     */
+    @NotNull
+    static long[] compact(@NotNull long[] keys) {
+        return normalize(keys, true);
+    }
+
+    /**
+     * Returns the sorted keys of the cells of the given precision covering the same area as the given cells.
+     */
+    @NotNull
+    static long[] uncompact(@NotNull long[] keys, int precision) {
+        LocationIdCodec.checkPrecision(precision);
+        for (long key : keys) {
+            if (LocationIdCodec.precision(key) > precision) {
+                throw new IllegalArgumentException("Invalid precision");
+            }
+        }
+        long[] cells = normalize(keys, false);
+
+        long size = 0;
+        for (long key : cells) {
+            size += 1L << (5 * (precision - LocationIdCodec.precision(key)));
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many cells");
+            }
+        }
+
+        LongList expanded = new LongList((int) size);
+        for (long key : cells) {
+            RegionCoverer.forEachDescendant(key, LocationIdCodec.precision(key), precision, expanded::add);
+        }
+        return expanded.toArray();
+    }
+
+    /**
+     * Sorts the keys and drops those inside a preceding cell; in key order a cell sits in the middle of its
+     * descendants, so the ones before it are popped when it arrives and the ones after it are skipped.
+     */
+    private static long[] normalize(long[] keys, boolean merge) {
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+
+        long[] output = new long[sorted.length];
+        int size = 0;
+        for (long key : sorted) {
+            LocationIdCodec.precision(key);
+            if (size > 0 && contains(output[size - 1], key)) {
+                continue;
+            }
+            while (size > 0 && contains(key, output[size - 1])) {
+                size--;
+            }
+
+            // a cell completing its 32 siblings becomes its parent, which may complete its own siblings in turn
+            while (merge && size >= 31 && LocationIdCodec.precision(key) > 1 && completesSiblings(output, size, key)) {
+                size -= 31;
+                key = parent(key);
+            }
+            output[size++] = key;
+        }
+        return Arrays.copyOf(output, size);
+    }
+
+    private static boolean completesSiblings(long[] output, int size, long key) {
+        long lsb = key & -key;
+        long parent = parent(key);
+        long firstChild = parent - (lsb << 5) + lsb;
+        if (key != firstChild + 62 * lsb) {
+            return false;
+        }
+        for (int i = 0; i < 31; i++) {
+            if (output[size - 31 + i] != firstChild + 2 * i * lsb) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long parent(long key) {
+        long lsb = (key & -key) << 5;
+        return (key & -(lsb << 1)) | lsb;
+    }
+
+    /**
+     * Returns whether cell b is cell a or one of its descendants.
+     */
+    static boolean contains(long a, long b) {
+        long lsb = a & -a;
+        return b > a - lsb && b < a + lsb;
+    }
+}
@@ -0,0 +1,99 @@
+package unl.core;
+
+/**
+ * The area within a great-circle distance of a point, on a spherical earth.
+ * <p>
+ * A cell relates to the circle by its smallest and largest distance to the centre. On the boundary of a cell,
+ * these are reached either at a corner or at the single point of each edge where the distance stops growing or
+ * shrinking: for the meridian edges, where the edge is closest to (or farthest from) the centre, and for the
+ * parallel edges, on the meridian of the centre or of its antipode.
+ */
+final class CircleRegion implements CellRegion {
+    static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    private final double lat;
+    private final double lon;
+    private final double sinLat;
+    private final double cosLat;
+    private final double radius;
+
+    CircleRegion(double lat, double lon, double radiusMeters) {
+        if (Double.isNaN(lat) || Double.isNaN(lon) || lat < -90 || lat > 90 || Double.isInfinite(lon)) {
+            throw new IllegalArgumentException("Invalid coordinates");
+        }
+        if (Double.isNaN(radiusMeters) || radiusMeters < 0 || Double.isInfinite(radiusMeters)) {
+            throw new IllegalArgumentException("Invalid radius");
+        }
+        this.lat = lat;
+        this.lon = normalizeLon(lon);
+        this.sinLat = Math.sin(Math.toRadians(lat));
+        this.cosLat = Math.cos(Math.toRadians(lat));
+        this.radius = radiusMeters / EARTH_RADIUS_METERS;
+    }
+
+    @Override
+    public int relate(double s, double w, double n, double e) {
+        double min = contains(s, w, n, e, lat, lon) ? 0 : Double.MAX_VALUE;
+        double max = contains(s, w, n, e, -lat, normalizeLon(lon + 180)) ? Math.PI : 0;
+
+        // corners
+        double[] lats = {s, n};
+        double[] lons = {w, e};
+        for (double cornerLat : lats) {
+            for (double cornerLon : lons) {
+                double distance = distance(cornerLat, cornerLon);
+                min = Math.min(min, distance);
+                max = Math.max(max, distance);
+            }
+        }
+
+        // meridian edges: the distance along a meridian has a single turning point
+        for (double edgeLon : lons) {
+            double b = cosLat * Math.cos(Math.toRadians(edgeLon - lon));
+            double turningLat = b == 0 ? 90 : Math.toDegrees(Math.atan(sinLat / b));
+            if (turningLat > s && turningLat < n) {
+                double distance = distance(turningLat, edgeLon);
+                min = Math.min(min, distance);
+                max = Math.max(max, distance);
+            }
+        }
+
+        // parallel edges: the distance turns on the meridians of the centre and of its antipode
+        for (double turningLon : new double[]{lon, normalizeLon(lon + 180)}) {
+            if (turningLon > w && turningLon < e) {
+                for (double edgeLat : lats) {
+                    double distance = distance(edgeLat, turningLon);
+                    min = Math.min(min, distance);
+                    max = Math.max(max, distance);
+                }
+            }
+        }
+
+        if (min > radius) {
+            return DISJOINT;
+        }
+        return max <= radius ? CONTAINS : INTERSECTS;
+    }
+
+    /**
+     * Returns the central angle, in radians, between the centre and a point.
+     */
+    private double distance(double pointLat, double pointLon) {
+        double sinDLat = Math.sin(Math.toRadians(pointLat - lat) / 2);
+        double sinDLon = Math.sin(Math.toRadians(pointLon - lon) / 2);
+        double h = sinDLat * sinDLat + cosLat * Math.cos(Math.toRadians(pointLat)) * sinDLon * sinDLon;
+        return 2 * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private static boolean contains(double s, double w, double n, double e, double pointLat, double pointLon) {
+        // a point on the antimeridian is on both the western and the eastern edge of the map
+        return pointLat >= s && pointLat <= n && ((pointLon >= w && pointLon <= e) || (pointLon == -180 && e == 180));
+    }
+
+    /**
+     * Returns the longitude in the range [-180, 180).
+     */
+    private static double normalizeLon(double lon) {
+        return ((lon + 180) % 360 + 360) % 360 - 180;
+    }
+}
@@ -36,4 +36,9 @@ public class Elevation {
         return this.elevation == elevation.elevation &&
                 Objects.equals(elevationType, elevation.elevationType);
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(elevation, elevationType);
+    }
 }
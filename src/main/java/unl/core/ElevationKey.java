@@ -0,0 +1,262 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Packs a locationId key and an elevation into a single long, a 3D key, so locations on different floors of the same
+ * cell sort next to each other.
+ * <p>
+ * A 3D key holds the locationId key of a cell of up to MAX_PRECISION characters, whose lowest 22 bits are always
+ * clear, with the elevation type in bit 21 (set for a height in centimetres) and the elevation, offset by 2^20, in
+ * bits 0 to 20. The keys of a cell sort by type, floors first, then by elevation, so "same cell, floors a to b" is
+ * the contiguous key range {@link #floorRange(long, int, int)}, and all the elevations of a cell lie in
+ * {@link #cellRange(long)}. Like locationId keys, 3D keys are positive and sort in the order of their cells.
+ */
+public final class ElevationKey {
+    /**
+     * The maximum precision of the cell of a 3D key: 8 characters, about 38 by 19 metres.
+     */
+    public static final int MAX_PRECISION = 8;
+    /**
+     * The lowest elevation of a 3D key.
+     */
+    public static final int MIN_ELEVATION = -(1 << 20);
+    /**
+     * The highest elevation of a 3D key.
+     */
+    public static final int MAX_ELEVATION = (1 << 20) - 1;
+
+    private static final int ELEVATION_BITS = 21;
+    private static final long ELEVATION_MASK = (1L << ELEVATION_BITS) - 1;
+    private static final long HEIGHT_FLAG = 1L << ELEVATION_BITS;
+    private static final long CELL_MASK = ~(HEIGHT_FLAG | ELEVATION_MASK);
+    private static final String HEIGHT_IN_CM = "heightincm";
+
+    private ElevationKey() {
+    }
+
+    /**
+     * Returns the 3D key of a cell and an elevation.
+     *
+     * @param key           the locationId key of the cell, of up to MAX_PRECISION characters.
+     * @param elevation     the elevation number, from MIN_ELEVATION to MAX_ELEVATION.
+     * @param elevationType the elevation type: 'floor' | 'heightincm'.
+     * @return the 3D key.
+     * @throws IllegalArgumentException if the key, its precision or the elevation are invalid.
+     * @example long key = ElevationKey.of(UnlCore.fromLocationId("u4pruydq"), 3, "floor");
+     */
+    public static long of(long key, int elevation, @NotNull String elevationType) {
+        if (LocationIdCodec.precision(key) > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid precision");
+        }
+        if (elevation < MIN_ELEVATION || elevation > MAX_ELEVATION) {
+            throw new IllegalArgumentException("Elevation out of range");
+        }
+        return key | (HEIGHT_IN_CM.equals(elevationType) ? HEIGHT_FLAG : 0) | (elevation - MIN_ELEVATION);
+    }
+
+    /**
+     * Returns the 3D key of a cell and an elevation.
+     *
+     * @param key       the locationId key of the cell, of up to MAX_PRECISION characters.
+     * @param elevation the elevation object, containing the elevation number and type.
+     * @return the 3D key.
+     * @throws IllegalArgumentException if the key, its precision or the elevation are invalid.
+     */
+    public static long of(long key, @NotNull Elevation elevation) {
+        return of(key, elevation.getElevation(), elevation.getElevationType());
+    }
+
+    /**
+     * Encodes latitude/longitude coordinates and an elevation to a 3D key.
+     *
+     * @param lat       the latitude in degrees.
+     * @param lon       the longitude in degrees.
+     * @param precision the number of characters of the cell, from 1 to MAX_PRECISION.
+     * @param elevation the elevation object, containing the elevation number and type.
+     * @return the 3D key.
+     * @throws IllegalArgumentException if the coordinates, precision or elevation are invalid.
+     * @example long key = ElevationKey.encode(52.205, 0.119, 8, new Elevation(2, "floor"));
+     */
+    public static long encode(double lat, double lon, int precision, @NotNull Elevation elevation) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid precision");
+        }
+        return of(LocationIdCodec.encode(lat, lon, precision), elevation);
+    }
+
+    /**
+     * Converts a locationId with its elevation chars to a 3D key. A locationId without elevation chars is on the
+     * ground floor.
+     *
+     * @param locationId the locationId, of up to MAX_PRECISION characters, with elevation chars.
+     * @return the 3D key.
+     * @throws IllegalArgumentException if the locationId, its precision or its elevation are invalid.
+     * @example long key = ElevationKey.fromLocationId("u4pruydq@3");
+     */
+    public static long fromLocationId(@NotNull CharSequence locationId) {
+        long parsed = LocationIdParser.parse(locationId);
+        if (parsed == LocationIdParser.INVALID) {
+            throw new IllegalArgumentException("Invalid locationId");
+        }
+        int geohashLength = LocationIdParser.geohashLength(parsed);
+        if (geohashLength > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid precision");
+        }
+        long key = LocationIdCodec.fromLocationId(locationId, 0, geohashLength);
+        return of(key, LocationIdParser.elevation(parsed), LocationIdParser.elevationType(parsed));
+    }
+
+    /**
+     * Converts a 3D key to its locationId, with elevation chars unless the elevation is 0.
+     *
+     * @param key3d the 3D key.
+     * @return the locationId.
+     * @throws IllegalArgumentException if the key is invalid.
+     * @example ElevationKey.toLocationId(ElevationKey.fromLocationId("u4pruydq#87")); // => 'u4pruydq#87'
+     */
+    @NotNull
+    public static String toLocationId(long key3d) {
+        return UnlCore.appendElevation(LocationIdCodec.toLocationId(cellKey(key3d)),
+                new Elevation(elevation(key3d), elevationType(key3d)));
+    }
+
+    /**
+     * Returns the locationId key of the cell of a 3D key.
+     *
+     * @param key3d the 3D key.
+     * @return the locationId key.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    public static long cellKey(long key3d) {
+        long key = key3d & CELL_MASK;
+        LocationIdCodec.precision(key);
+        return key;
+    }
+
+    /**
+     * Returns the elevation number of a 3D key.
+     */
+    public static int elevation(long key3d) {
+        return (int) (key3d & ELEVATION_MASK) + MIN_ELEVATION;
+    }
+
+    /**
+     * Returns whether the elevation of a 3D key is a height in centimetres rather than a floor.
+     */
+    public static boolean isHeightInCm(long key3d) {
+        return (key3d & HEIGHT_FLAG) != 0;
+    }
+
+    /**
+     * Returns the elevation type of a 3D key: "heightincm" or "floor".
+     */
+    @NotNull
+    public static String elevationType(long key3d) {
+        return isHeightInCm(key3d) ? HEIGHT_IN_CM : "floor";
+    }
+
+    /**
+     * Returns the first and last 3D keys of the floors from fromFloor to toFloor of a cell. The keys of the cell on
+     * those floors are exactly the keys in that inclusive range, so they are found with a single range scan of a
+     * sorted index. The range holds no key of the children of the cell.
+     *
+     * @param key       the locationId key of the cell, of up to MAX_PRECISION characters.
+     * @param fromFloor the lowest floor.
+     * @param toFloor   the highest floor.
+     * @return a new array with the first and last 3D keys of the range.
+     * @throws IllegalArgumentException if the key, its precision or the floors are invalid.
+     * @example long[] range = ElevationKey.floorRange(UnlCore.fromLocationId("u4pruydq"), -1, 3); // => subMap(range[0], true, range[1], true)
+     */
+    @NotNull
+    public static long[] floorRange(long key, int fromFloor, int toFloor) {
+        if (fromFloor > toFloor) {
+            throw new IllegalArgumentException("Invalid floor range");
+        }
+        return new long[]{of(key, fromFloor, "floor"), of(key, toFloor, "floor")};
+    }
+
+    /**
+     * Returns the first and last 3D keys of a cell, at any elevation: all its floors, then all its heights.
+     *
+     * @param key the locationId key of the cell, of up to MAX_PRECISION characters.
+     * @return a new array with the first and last 3D keys of the cell.
+     * @throws IllegalArgumentException if the key or its precision are invalid.
+     */
+    @NotNull
+    public static long[] cellRange(long key) {
+        return new long[]{of(key, MIN_ELEVATION, "floor"), of(key, MAX_ELEVATION, HEIGHT_IN_CM)};
+    }
+
+    /**
+     * Returns the 3D key of the same cell one floor, or one centimetre, up. The elevation is clamped at
+     * MAX_ELEVATION.
+     *
+     * @param key3d the 3D key.
+     * @return the 3D key above.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    public static long up(long key3d) {
+        cellKey(key3d);
+        return elevation(key3d) == MAX_ELEVATION ? key3d : key3d + 1;
+    }
+
+    /**
+     * Returns the 3D key of the same cell one floor, or one centimetre, down. The elevation is clamped at
+     * MIN_ELEVATION.
+     *
+     * @param key3d the 3D key.
+     * @return the 3D key below.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    public static long down(long key3d) {
+        cellKey(key3d);
+        return elevation(key3d) == MIN_ELEVATION ? key3d : key3d - 1;
+    }
+
+    /**
+     * Returns the 3D keys of all 26 neighbours of a 3D key.
+     *
+     * @param key3d the 3D key.
+     * @return a new array with the 26 neighbour keys, laid out as in neighbours(long, long[]).
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    @NotNull
+    public static long[] neighbours(long key3d) {
+        return neighbours(key3d, new long[26]);
+    }
+
+    /**
+     * Writes the 3D keys of all 26 neighbours of a 3D key into a reusable array: at indexes 0 to 7 the 8 adjacent
+     * cells at the same elevation, indexed by Neighbours.N, NE, E, SE, S, SW, W and NW; at index 8 the same cell one
+     * level up, and at 9 to 16 its 8 adjacent cells; at index 17 the same cell one level down, and at 18 to 25 its 8
+     * adjacent cells. Longitudes wrap around the antimeridian, and latitudes and elevations are clamped at their
+     * limits, like up and down.
+     *
+     * @param key3d the 3D key.
+     * @param dst   the array to fill.
+     * @return the array that was passed in.
+     * @throws IllegalArgumentException  if the key is invalid.
+     * @throws IndexOutOfBoundsException if the array has less than 26 elements.
+     */
+    @NotNull
+    public static long[] neighbours(long key3d, @NotNull long[] dst) {
+        if (dst.length < 26) {
+            throw new IndexOutOfBoundsException("Destination array must hold 26 keys");
+        }
+
+        long key = cellKey(key3d);
+        long level = key3d & ~CELL_MASK;
+        long up = up(key3d) & ~CELL_MASK;
+        long down = down(key3d) & ~CELL_MASK;
+        LocationIdCodec.neighbours(key, dst);
+        for (int i = 7; i >= 0; i--) {
+            dst[18 + i] = dst[i] | down;
+            dst[9 + i] = dst[i] | up;
+            dst[i] |= level;
+        }
+        dst[8] = key | up;
+        dst[17] = key | down;
+        return dst;
+    }
+}
@@ -0,0 +1,10 @@
+package unl.core;
+
+/**
+ * Receives grid lines one by one, as the coordinates of their start and end points, so lines can be drawn or
+ * written without creating an array per line.
+ */
+@FunctionalInterface
+public interface GridLineConsumer {
+    void accept(double startLon, double startLat, double endLon, double endLat);
+}
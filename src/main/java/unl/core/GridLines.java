@@ -0,0 +1,72 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Computes the grid lines crossing n, e, s, w bounds from the cell size at a precision.
+ * <p>
+ * The cell edges of a precision lie at {@code -90 + k * cellHeight} and {@code -180 + k * cellWidth}, which are
+ * exact in double arithmetic, so the lines are those edges from the edge after the south-west cell of the bounds up
+ * to the northern and eastern bounds. They are the lines found by walking from cell to cell, without the walk.
+ */
+final class GridLines {
+    private final double north;
+    private final double east;
+    private final double south;
+    private final double west;
+    private final double cellHeight;
+    private final double cellWidth;
+    private final long firstLat;
+    private final long lastLat;
+    private final long firstLon;
+    private final long lastLon;
+
+    GridLines(@NotNull Bounds bounds, int precision) {
+        LocationIdCodec.checkPrecision(precision);
+        this.north = bounds.getN();
+        this.east = bounds.getE();
+        this.south = bounds.getS();
+        this.west = bounds.getW();
+        this.cellHeight = LocationIdCodec.cellHeight(precision);
+        this.cellWidth = LocationIdCodec.cellWidth(precision);
+
+        long swCell = LocationIdCodec.encode(south, west, precision);
+        long hashBits = LocationIdCodec.hashBits(swCell, precision);
+        this.firstLat = LocationIdCodec.latIndex(hashBits, precision) + 1;
+        this.firstLon = LocationIdCodec.lonIndex(hashBits, precision) + 1;
+        this.lastLat = lastEdge(-90, cellHeight, north, 1L << LocationIdCodec.latBits(precision));
+        this.lastLon = lastEdge(-180, cellWidth, east, 1L << LocationIdCodec.lonBits(precision));
+    }
+
+    /**
+     * Returns the index of the last cell edge at or before the limit, among the edges from 0 to maxEdge.
+     */
+    private static long lastEdge(double origin, double step, double limit, long maxEdge) {
+        long edge = Math.max(-1, Math.min(maxEdge, (long) Math.floor((limit - origin) / step)));
+        while (edge < maxEdge && origin + (edge + 1) * step <= limit) {
+            edge++;
+        }
+        while (edge >= 0 && origin + edge * step > limit) {
+            edge--;
+        }
+        return edge;
+    }
+
+    long count() {
+        return Math.max(0, lastLat - firstLat + 1) + Math.max(0, lastLon - firstLon + 1);
+    }
+
+    /**
+     * Passes the horizontal lines from south to north, then the vertical lines from west to east.
+     */
+    void forEach(@NotNull GridLineConsumer consumer) {
+        for (long k = firstLat; k <= lastLat; k++) {
+            double lat = -90 + k * cellHeight;
+            consumer.accept(west, lat, east, lat);
+        }
+        for (long k = firstLon; k <= lastLon; k++) {
+            double lon = -180 + k * cellWidth;
+            consumer.accept(lon, south, lon, north);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders the UNL grid for z/x/y web-mercator tiles, and keeps the rendered tiles in an LRU cache bounded by their
+ * total size in bytes. The grid never changes, so a cached tile is served as is until it is evicted.
+ * <p>
+ * The precision of a tile is picked from its zoom level so a tile is crossed by at most about 16 lines in each
+ * direction, and the lines are those of {@link UnlCore#gridLines(Bounds, int, GridLineConsumer)} in the tile bounds.
+ * Tiles are rendered in two formats:
+ * <ul>
+ * <li>binary: the number of lines and the precision as two big-endian ints, then four unsigned big-endian shorts per
+ * line, the start x, y and end x, y in tile pixels from 0 to {@link #EXTENT}, y growing southwards;</li>
+ * <li>GeoJSON: a UTF-8 MultiLineString geometry in longitude/latitude coordinates.</li>
+ * </ul>
+ */
+public class GridTiles {
+    public static final int MAX_ZOOM = 29;
+    public static final int EXTENT = 4096;
+    private static final int LINES_PER_TILE_BITS = 4;
+
+    private final long maxCacheBytes;
+    private final Map<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxCacheBytes the maximum total size of the cached tiles, in bytes; 0 disables the cache.
+     */
+    public GridTiles(long maxCacheBytes) {
+        if (maxCacheBytes < 0) {
+            throw new IllegalArgumentException("Invalid cache size");
+        }
+        this.maxCacheBytes = maxCacheBytes;
+    }
+
+    /**
+     * Returns the n, e, s, w bounds of a web-mercator tile.
+     *
+     * @param z the zoom level, from 0 to MAX_ZOOM.
+     * @param x the column of the tile, from west to east.
+     * @param y the row of the tile, from north to south.
+     * @return the bounds of the tile.
+     * @throws IllegalArgumentException if the tile is invalid.
+     */
+    @NotNull
+    public static Bounds tileBounds(int z, int x, int y) {
+        checkTile(z, x, y);
+        double tiles = 1L << z;
+        return new Bounds(tileLat(y, tiles), (x + 1) / tiles * 360 - 180, tileLat(y + 1, tiles), x / tiles * 360 - 180);
+    }
+
+    /**
+     * Returns the precision of the grid drawn on the tiles of a zoom level: the finest precision whose cells are at
+     * least a sixteenth of a tile wide and high. A tile spans at most as many degrees of latitude as of longitude, at
+     * the equator, while the cells of even precisions are half as high as they are wide, so both sides are checked.
+     *
+     * @param z the zoom level, from 0 to MAX_ZOOM.
+     * @return the precision, from 1 to MAX_KEY_PRECISION.
+     * @throws IllegalArgumentException if the zoom level is invalid.
+     */
+    public static int precisionForZoom(int z) {
+        checkTile(z, 0, 0);
+        int precision = 1;
+        while (precision < LocationIdCodec.MAX_PRECISION
+                && LocationIdCodec.lonBits(precision + 1) <= z + LINES_PER_TILE_BITS
+                && LocationIdCodec.latBits(precision + 1) + 1 <= z + LINES_PER_TILE_BITS) {
+            precision++;
+        }
+        return precision;
+    }
+
+    /**
+     * Returns the grid lines of a tile in the binary format.
+     *
+     * @param z the zoom level, from 0 to MAX_ZOOM.
+     * @param x the column of the tile, from west to east.
+     * @param y the row of the tile, from north to south.
+     * @return a read-only buffer holding the tile.
+     * @throws IllegalArgumentException if the tile is invalid.
+     */
+    @NotNull
+    public ByteBuffer binaryTile(int z, int x, int y) {
+        checkTile(z, x, y);
+        String key = "b/" + z + "/" + x + "/" + y;
+        byte[] tile = cached(key);
+        if (tile == null) {
+            tile = renderBinary(z, x, y);
+            cache(key, tile);
+        }
+        return ByteBuffer.wrap(tile).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the grid lines of a tile as a GeoJSON MultiLineString geometry.
+     *
+     * @param z the zoom level, from 0 to MAX_ZOOM.
+     * @param x the column of the tile, from west to east.
+     * @param y the row of the tile, from north to south.
+     * @return a read-only buffer holding the UTF-8 encoded geometry.
+     * @throws IllegalArgumentException if the tile is invalid.
+     */
+    @NotNull
+    public ByteBuffer geoJsonTile(int z, int x, int y) {
+        checkTile(z, x, y);
+        String key = "g/" + z + "/" + x + "/" + y;
+        byte[] tile = cached(key);
+        if (tile == null) {
+            tile = renderGeoJson(z, x, y);
+            cache(key, tile);
+        }
+        return ByteBuffer.wrap(tile).asReadOnlyBuffer();
+    }
+
+    public synchronized long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private synchronized byte[] cached(String key) {
+        byte[] tile = cache.get(key);
+        if (tile != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return tile;
+    }
+
+    /**
+     * Adds a tile to the cache and evicts the least recently used tiles until the cache fits in its size again.
+     * Tiles rendered by two threads at once are cached once.
+     */
+    private synchronized void cache(String key, byte[] tile) {
+        if (tile.length > maxCacheBytes) {
+            return;
+        }
+        byte[] previous = cache.put(key, tile);
+        cacheBytes += tile.length - (previous != null ? previous.length : 0);
+
+        Iterator<byte[]> eldest = cache.values().iterator();
+        while (cacheBytes > maxCacheBytes) {
+            cacheBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    private static byte[] renderBinary(int z, int x, int y) {
+        Bounds bounds = tileBounds(z, x, y);
+        int precision = precisionForZoom(z);
+        double tiles = 1L << z;
+
+        int count = (int) UnlCore.gridLineCount(bounds, precision);
+        ByteBuffer tile = ByteBuffer.allocate(8 + 8 * count);
+        tile.putInt(count).putInt(precision);
+        UnlCore.gridLines(bounds, precision, (startLon, startLat, endLon, endLat) -> {
+            tile.putShort(pixelX(startLon, tiles, x));
+            tile.putShort(pixelY(startLat, tiles, y));
+            tile.putShort(pixelX(endLon, tiles, x));
+            tile.putShort(pixelY(endLat, tiles, y));
+        });
+        return tile.array();
+    }
+
+    private static byte[] renderGeoJson(int z, int x, int y) {
+        StringBuilder json = new StringBuilder("{\"type\":\"MultiLineString\",\"coordinates\":[");
+        UnlCore.gridLines(tileBounds(z, x, y), precisionForZoom(z), (startLon, startLat, endLon, endLat) -> {
+            if (json.charAt(json.length() - 1) != '[') {
+                json.append(',');
+            }
+            json.append("[[").append(startLon).append(',').append(startLat).append("],[")
+                    .append(endLon).append(',').append(endLat).append("]]");
+        });
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static short pixelX(double lon, double tiles, int x) {
+        return pixel(((lon + 180) / 360 * tiles - x) * EXTENT);
+    }
+
+    private static short pixelY(double lat, double tiles, int y) {
+        double latRad = Math.toRadians(lat);
+        double mercator = Math.log(Math.tan(latRad) + 1 / Math.cos(latRad));
+        return pixel(((1 - mercator / Math.PI) / 2 * tiles - y) * EXTENT);
+    }
+
+    private static short pixel(double value) {
+        return (short) Math.max(0, Math.min(EXTENT, Math.round(value)));
+    }
+
+    private static double tileLat(int y, double tiles) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / tiles))));
+    }
+
+    private static void checkTile(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM || x < 0 || y < 0 || x >= 1L << z || y >= 1L << z) {
+            throw new IllegalArgumentException("Invalid tile");
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the locations returned by the location APIs, keyed by the cell they lie in at the precision the APIs
+ * answer at, so any coordinates or locationId inside a cached cell are resolved without a call.
+ * <p>
+ * Locations are also indexed by their words. Only ground level locations are cached: a lookup with a non-zero
+ * elevation always goes to the APIs. Entries expire after a fixed time to live, and the least recently used ones
+ * are evicted beyond the maximum size. The cache is split into up to 16 independently locked stripes, so lookups of
+ * different cells rarely wait for each other.
+ * <p>
+ * A {@link LocationStore} can be added as a second tier: locations missing from memory are then looked up in the
+ * store, and the cached locations are also appended to it, so they outlive the process. They still expire after the
+ * time to live: a location stored longer ago is a miss, and a stored location is kept in memory for the rest of its
+ * time to live only.
+ */
+public class LocationCache {
+    public static final int DEFAULT_PRECISION = UnlCore.DEFAULT_PRECISION;
+    private static final int STRIPES = 16;
+
+    private final int precision;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    @Nullable
+    private final LocationStore store;
+    private final Stripe[] stripes;
+    private final ConcurrentHashMap<String, Long> cellsByWords = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Creates a cache of locations keyed by their cell at the default precision: 9.
+     *
+     * @param maxSize   the maximum number of cached locations.
+     * @param ttlMillis the time to live of the cached locations, in milliseconds.
+     * @throws IllegalArgumentException if the size or time to live are invalid.
+     */
+    public LocationCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a cache of locations keyed by their cell at a precision.
+     *
+     * @param maxSize   the maximum number of cached locations.
+     * @param ttlMillis the time to live of the cached locations, in milliseconds.
+     * @param precision the precision of the cells, from 1 to MAX_KEY_PRECISION.
+     * @throws IllegalArgumentException if the size, time to live or precision are invalid.
+     */
+    public LocationCache(int maxSize, long ttlMillis, int precision) {
+        this(maxSize, ttlMillis, precision, null, System::nanoTime);
+    }
+
+    /**
+     * Creates a cache of locations backed by a store, keyed by their cell at the precision of the store.
+     *
+     * @param maxSize   the maximum number of locations cached in memory.
+     * @param ttlMillis the time to live of the locations cached in memory, in milliseconds.
+     * @param store     the store of the locations, looked up on misses and appended to on puts.
+     * @throws IllegalArgumentException if the size or time to live are invalid.
+     */
+    public LocationCache(int maxSize, long ttlMillis, @NotNull LocationStore store) {
+        this(maxSize, ttlMillis, store.getPrecision(), store, System::nanoTime);
+    }
+
+    LocationCache(int maxSize, long ttlMillis, int precision, @Nullable LocationStore store, @NotNull LongSupplier clock) {
+        if (maxSize < 1 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Invalid cache configuration");
+        }
+        LocationIdCodec.checkPrecision(precision);
+        this.precision = precision;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.clock = clock;
+        this.store = store;
+        // a power of two of at most maxSize stripes, so each holds at least one entry and they add up to maxSize
+        int stripeCount = Math.min(STRIPES, Integer.highestOneBit(maxSize));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // spread the remainder
+            stripes[i] = new Stripe(maxSize / stripeCount + (i < maxSize % stripeCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * Returns the cached location of the cell containing the coordinates.
+     *
+     * @param lat the latitude in degrees.
+     * @param lon the longitude in degrees.
+     * @return the location, or null if it is not cached.
+     * @throws IllegalArgumentException if the coordinates are invalid.
+     * @throws UncheckedIOException     if the store cannot be read.
+     */
+    @Nullable
+    public Location get(double lat, double lon) {
+        return get(LocationIdCodec.encode(lat, lon, precision));
+    }
+
+    /**
+     * Returns the cached location of the cell of a locationId.
+     *
+     * @param locationId the locationId, of at least the precision of the cache; ids with a non-zero elevation are
+     *                   never cached.
+     * @return the location, or null if it is not cached.
+     * @throws IllegalArgumentException if the locationId is invalid.
+     * @throws UncheckedIOException     if the store cannot be read.
+     */
+    @Nullable
+    public Location getByLocationId(@NotNull String locationId) {
+        long cell = cellOf(locationId);
+        if (cell == -1) {
+            misses.increment();
+            return null;
+        }
+        return get(cell);
+    }
+
+    /**
+     * Returns the cached location with the given words.
+     *
+     * @param words the words of the location.
+     * @return the location, or null if it is not cached.
+     * @throws UncheckedIOException if the store cannot be read.
+     */
+    @Nullable
+    public Location getByWords(@NotNull String words) {
+        Long cell = cellsByWords.get(words);
+        Location location = cell != null ? stripe(cell).get(cell, clock.getAsLong()) : null;
+        if (location != null && !words.equals(location.getWords())) {
+            // the cell was cached again since, under other words
+            location = null;
+        }
+        if (location == null && store != null) {
+            try {
+                location = cache(store.getByWords(words, ttlMillis()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return record(location);
+    }
+
+    /**
+     * Caches a location under the cell of its coordinates and under its words. Locations with a non-zero
+     * elevation are not cached.
+     *
+     * @param location the location returned by the location APIs.
+     * @throws UncheckedIOException if the store cannot be written.
+     */
+    public void put(@NotNull Location location) {
+        if (location.getElevation().getElevation() != 0) {
+            return;
+        }
+        if (store != null) {
+            try {
+                store.put(location);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        cache(location);
+    }
+
+    /**
+     * Caches a ground level location in memory only.
+     */
+    private void cache(@NotNull Location location) {
+        cache(location, 0);
+    }
+
+    /**
+     * Caches a location read from the store in memory, for the rest of its time to live.
+     */
+    @Nullable
+    private Location cache(@Nullable LocationStore.Stored stored) {
+        if (stored == null) {
+            return null;
+        }
+        cache(stored.location, TimeUnit.MILLISECONDS.toNanos(stored.ageMillis));
+        return stored.location;
+    }
+
+    private void cache(@NotNull Location location, long ageNanos) {
+        long cell = LocationIdCodec.encode(location.getPoint().getLat(), location.getPoint().getLon(), precision);
+        stripe(cell).put(cell, new Entry(location, clock.getAsLong() + ttlNanos - ageNanos));
+        cellsByWords.put(location.getWords(), cell);
+    }
+
+    private long ttlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    /**
+     * Removes all locations cached in memory. Statistics and the store are kept.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+        cellsByWords.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of locations evicted to keep the cache within its maximum size.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of locations dropped because their time to live had passed.
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Returns the cell of a locationId at the precision of the cache, or -1 if the locationId has a non-zero
+     * elevation or is too short to lie in a single cell.
+     */
+    long cellOf(@NotNull String locationId) {
+        long parsed = LocationIdParser.parse(locationId);
+        if (parsed == LocationIdParser.INVALID) {
+            throw new IllegalArgumentException("Invalid locationId");
+        }
+        if (LocationIdParser.elevation(parsed) != 0 || LocationIdParser.geohashLength(parsed) < precision) {
+            return -1;
+        }
+        return LocationIdCodec.fromLocationId(locationId, 0, precision);
+    }
+
+    @Nullable
+    private Location get(long cell) {
+        Location location = stripe(cell).get(cell, clock.getAsLong());
+        if (location == null && store != null) {
+            try {
+                location = cache(store.get(cell, ttlMillis()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return record(location);
+    }
+
+    @Nullable
+    private Location record(@Nullable Location location) {
+        if (location != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return location;
+    }
+
+    private Stripe stripe(long cell) {
+        long hash = cell * 0x9e3779b97f4a7c15L;
+        return stripes[(int) (hash >>> 60) & (stripes.length - 1)];
+    }
+
+    private void forgetWords(long cell, @NotNull Entry entry) {
+        cellsByWords.remove(entry.location.getWords(), cell);
+    }
+
+    private static final class Entry {
+        @NotNull
+        final Location location;
+        final long expiresAt;
+
+        Entry(@NotNull Location location, long expiresAt) {
+            this.location = location;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * One lock and one access-ordered map, holding a share of the maximum size.
+     */
+    private final class Stripe {
+        private final int maxSize;
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        Stripe(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Nullable
+        synchronized Location get(long cell, long now) {
+            Entry entry = entries.get(cell);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(cell);
+                forgetWords(cell, entry);
+                expirations.increment();
+                return null;
+            }
+            return entry.location;
+        }
+
+        synchronized void put(long cell, @NotNull Entry entry) {
+            Entry previous = entries.put(cell, entry);
+            if (previous != null && !previous.location.getWords().equals(entry.location.getWords())) {
+                forgetWords(cell, previous);
+            }
+
+            Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxSize) {
+                Map.Entry<Long, Entry> evicted = eldest.next();
+                eldest.remove();
+                forgetWords(evicted.getKey(), evicted.getValue());
+                evictions.increment();
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous client of the UNL location APIs.
+ * <p>
+ * Calls run on a pool of at most maxConcurrency threads, so at most that many requests are in flight at once and
+ * the others wait in line. Concurrent lookups of the same location or words share a single call. Connections are
+ * kept alive between calls to the same host. Futures complete with the location, or exceptionally with an
+ * {@link UnlCoreException} if the call fails, times out or returns an error status.
+ * <p>
+ * Once closed, the client throws an IllegalStateException from its lookup methods.
+ */
+public class LocationClient implements Closeable {
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+    @NotNull
+    private final String apiKey;
+    @NotNull
+    private final String baseUrl;
+    @NotNull
+    private final CallPolicy policy;
+    @NotNull
+    private final ExecutorService executor;
+    @Nullable
+    private final LocationCache cache;
+    private final SingleFlight<Location> lookups = new SingleFlight<>();
+
+    /**
+     * Creates a client of the UNL location APIs with the default concurrency and timeouts.
+     *
+     * @param apiKey the UNL API key used to access the location APIs.
+     * @throws IllegalArgumentException if the api key string is empty.
+     */
+    public LocationClient(@NotNull String apiKey) {
+        this(apiKey, UnlCore.BASE_URL, DEFAULT_MAX_CONCURRENCY, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a client of the location APIs.
+     *
+     * @param apiKey               the UNL API key used to access the location APIs.
+     * @param baseUrl              the url the endpoint paths are appended to, ending with a slash.
+     * @param maxConcurrency       the maximum number of requests in flight.
+     * @param connectTimeoutMillis the connect timeout in milliseconds, 0 for none.
+     * @param readTimeoutMillis    the read timeout in milliseconds, 0 for none.
+     * @throws IllegalArgumentException if the api key string is empty, or the concurrency or timeouts are invalid.
+     */
+    public LocationClient(@NotNull String apiKey, @NotNull String baseUrl, int maxConcurrency, int connectTimeoutMillis, int readTimeoutMillis) {
+        this(apiKey, baseUrl, maxConcurrency, connectTimeoutMillis, readTimeoutMillis, null);
+    }
+
+    /**
+     * Creates a client of the location APIs, answering lookups from a cache when it can.
+     *
+     * @param apiKey               the UNL API key used to access the location APIs.
+     * @param baseUrl              the url the endpoint paths are appended to, ending with a slash.
+     * @param maxConcurrency       the maximum number of requests in flight.
+     * @param connectTimeoutMillis the connect timeout in milliseconds, 0 for none.
+     * @param readTimeoutMillis    the read timeout in milliseconds, 0 for none.
+     * @param cache                the cache of locations, or null to always call the location APIs.
+     * @throws IllegalArgumentException if the api key string is empty, or the concurrency or timeouts are invalid.
+     */
+    public LocationClient(@NotNull String apiKey, @NotNull String baseUrl, int maxConcurrency, int connectTimeoutMillis, int readTimeoutMillis, @Nullable LocationCache cache) {
+        this(apiKey, baseUrl, maxConcurrency, timeouts(connectTimeoutMillis, readTimeoutMillis), cache);
+    }
+
+    /**
+     * Creates a client of the location APIs, with the timeouts, retries, hedging and circuit breaker of a call
+     * policy. Hedged duplicate requests are sent outside the pool of the client.
+     *
+     * @param apiKey         the UNL API key used to access the location APIs.
+     * @param baseUrl        the url the endpoint paths are appended to, ending with a slash.
+     * @param maxConcurrency the maximum number of requests in flight.
+     * @param policy         the policy of the calls, which can be shared with other clients of the same host.
+     * @param cache          the cache of locations, or null to always call the location APIs.
+     * @throws IllegalArgumentException if the api key string is empty, or the concurrency is invalid.
+     */
+    public LocationClient(@NotNull String apiKey, @NotNull String baseUrl, int maxConcurrency, @NotNull CallPolicy policy, @Nullable LocationCache cache) {
+        if (apiKey.length() == 0) {
+            throw new IllegalArgumentException("API key not set");
+        }
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Invalid client configuration");
+        }
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.policy = policy;
+        this.cache = cache;
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new DaemonThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Returns the location object corresponding to the location string (id or lat-lon coordinates), asynchronously.
+     *
+     * @param location the location (Id or lat-lon coordinates) of the point for which you would like the address.
+     * @return a future of the location, containing the coordinates, elevation, bounds, geohash and words.
+     * @throws IllegalArgumentException if the location is invalid.
+     * @throws IllegalStateException    if the client is closed.
+     */
+    @NotNull
+    public CompletableFuture<Location> toWordsAsync(@NotNull String location) {
+        ensureOpen();
+        String path = UnlCore.toWordsPath(location);
+        Location cached = cache != null ? UnlCore.cachedLocation(cache, location) : null;
+        return cached != null ? CompletableFuture.completedFuture(cached) : call(path);
+    }
+
+    /**
+     * Returns the location object corresponding to the words string, asynchronously.
+     *
+     * @param words the words representing the point for which you would like the coordinates.
+     * @return a future of the location, containing the coordinates, elevation, bounds, geohash and words.
+     * @throws IllegalStateException if the client is closed.
+     */
+    @NotNull
+    public CompletableFuture<Location> wordsAsync(@NotNull String words) {
+        ensureOpen();
+        Location cached = cache != null ? cache.getByWords(words) : null;
+        return cached != null ? CompletableFuture.completedFuture(cached) : call(UnlCore.wordsPath(words));
+    }
+
+    /**
+     * Returns the number of lookups requested from this client, including the collapsed ones.
+     */
+    public long getLookups() {
+        return lookups.getCalls();
+    }
+
+    /**
+     * Returns the number of lookups that shared the response of an identical lookup in flight instead of calling the
+     * location APIs.
+     */
+    public long getCollapsedLookups() {
+        return lookups.getCollapsed();
+    }
+
+    /**
+     * Stops the threads of the client once the calls already made are done. Closing a closed client has no effect.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Calls an endpoint on the pool, unless the same endpoint is already being called, in which case the future of
+     * that call is returned.
+     */
+    @NotNull
+    private CompletableFuture<Location> call(@NotNull String path) {
+        return lookups.executeAsync(UnlCore.lookupKey(path), () -> {
+            CompletableFuture<Location> future = new CompletableFuture<>();
+            executor.execute(() -> {
+                try {
+                    future.complete(fetch(path));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+            return future;
+        });
+    }
+
+    @Nullable
+    private Location fetch(@NotNull String path) throws UnlCoreException {
+        Location location = LocationService.callEndpoint(baseUrl + path, apiKey, policy, UnlCore::readLocation);
+        if (cache != null && location != null) {
+            cache.put(location);
+        }
+        return location;
+    }
+
+    private void ensureOpen() {
+        if (executor.isShutdown()) {
+            throw new IllegalStateException("Client closed");
+        }
+    }
+
+    @NotNull
+    private static CallPolicy timeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Invalid client configuration");
+        }
+        return new CallPolicy(connectTimeoutMillis, readTimeoutMillis);
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "unl-location-client-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -8,6 +8,12 @@ import com.google.gson.JsonParseException;
 
 import java.lang.reflect.Type;
 
+/**
+ * Tree-based deserializer of location responses.
+ *
+ * @deprecated use {@link LocationTypeAdapter}, which reads the responses without building a tree.
+ */
+@Deprecated
 public class LocationDeserializer implements JsonDeserializer<Location> {
 
     @Override
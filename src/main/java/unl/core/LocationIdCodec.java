@@ -0,0 +1,283 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Packs locationIds into primitive long keys and back.
+ * <p>
+ * A key holds the interleaved longitude/latitude bits of the locationId left-aligned from bit 62, followed by a
+ * single marker bit; the position of the marker gives the precision. Bit 63 is always clear, so keys are positive
+ * and sort in the same order for all precisions: the descendants of a cell lie in a contiguous key range around it.
+ */
+final class LocationIdCodec {
+    static final int MAX_PRECISION = 12;
+    static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private static final byte[] BASE32_INDEX = new byte[128];
+    private static final int[] LAT_SCALES = new int[31];
+    private static final int[] LON_SCALES = new int[31];
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long[] POWERS_OF_FIVE = new long[23];
+
+    static {
+        Arrays.fill(BASE32_INDEX, (byte) -1);
+        for (int i = 0; i < BASE32.length(); i++) {
+            BASE32_INDEX[BASE32.charAt(i)] = (byte) i;
+            BASE32_INDEX[Character.toUpperCase(BASE32.charAt(i))] = (byte) i;
+        }
+
+        POWERS_OF_TEN[0] = 1;
+        POWERS_OF_FIVE[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            POWERS_OF_FIVE[i] = POWERS_OF_FIVE[i - 1] * 5;
+        }
+
+        // floor(2 - log10(cell size in degrees)) decimal places, as computed by UnlCore.decode
+        for (int bits = 0; bits < LAT_SCALES.length; bits++) {
+            LAT_SCALES[bits] = (int) Math.floor(2 - Math.log(180.0 / (1L << bits)) / Math.log(10));
+            LON_SCALES[bits] = (int) Math.floor(2 - Math.log(360.0 / (1L << bits)) / Math.log(10));
+        }
+    }
+
+    private LocationIdCodec() {
+    }
+
+    /**
+     * Returns the base32 value of a locationId character, or -1 if it is not a base32 character.
+     */
+    static int decodeChar(char chr) {
+        return chr < 128 ? BASE32_INDEX[chr] : -1;
+    }
+
+    static long pack(long hashBits, int precision) {
+        return (hashBits << (63 - 5 * precision)) | (1L << (62 - 5 * precision));
+    }
+
+    static int precision(long key) {
+        int trailingZeros = Long.numberOfTrailingZeros(key);
+        if (key <= 0 || (62 - trailingZeros) % 5 != 0 || trailingZeros < 62 - 5 * MAX_PRECISION || trailingZeros > 57) {
+            throw new IllegalArgumentException("Invalid locationId key");
+        }
+        return (62 - trailingZeros) / 5;
+    }
+
+    static long hashBits(long key, int precision) {
+        return key >>> (63 - 5 * precision);
+    }
+
+    static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid precision");
+        }
+    }
+
+    static long encode(double lat, double lon, int precision) {
+        if (Double.isNaN(lat) || Double.isNaN(lon)) {
+            throw new IllegalArgumentException("Invalid coordinates or precision");
+        }
+        checkPrecision(precision);
+
+        int latIdx = (int) quantize(lat, -90, 180, latBits(precision));
+        int lonIdx = (int) quantize(lon, -180, 360, lonBits(precision));
+        return fromIndices(latIdx, lonIdx, precision);
+    }
+
+    @NotNull
+    static Bounds bounds(long key) {
+        int precision = precision(key);
+        long hashBits = hashBits(key, precision);
+        int latIdx = latIndex(hashBits, precision);
+        int lonIdx = lonIndex(hashBits, precision);
+        double latStep = cellHeight(precision);
+        double lonStep = cellWidth(precision);
+
+        return new Bounds(
+                -90 + (latIdx + 1) * latStep,
+                -180 + (lonIdx + 1) * lonStep,
+                -90 + latIdx * latStep,
+                -180 + lonIdx * lonStep
+        );
+    }
+
+    /**
+     * Writes the 8 neighbours of a cell to dst, in n, ne, e, se, s, sw, w, nw order. Longitudes wrap around
+     * the antimeridian; latitudes are clamped at the poles, so the northern neighbours of a cell on the
+     * northernmost row are the cell itself and its east and west neighbours (and likewise at the south pole).
+     */
+    static void neighbours(long key, @NotNull long[] dst) {
+        int precision = precision(key);
+        long hashBits = hashBits(key, precision);
+        int latIdx = latIndex(hashBits, precision);
+        int lonIdx = lonIndex(hashBits, precision);
+        int lonMask = (1 << lonBits(precision)) - 1;
+
+        int north = Math.min(latIdx + 1, (1 << latBits(precision)) - 1);
+        int south = Math.max(latIdx - 1, 0);
+        int east = (lonIdx + 1) & lonMask;
+        int west = (lonIdx - 1) & lonMask;
+
+        dst[0] = fromIndices(north, lonIdx, precision);
+        dst[1] = fromIndices(north, east, precision);
+        dst[2] = fromIndices(latIdx, east, precision);
+        dst[3] = fromIndices(south, east, precision);
+        dst[4] = fromIndices(south, lonIdx, precision);
+        dst[5] = fromIndices(south, west, precision);
+        dst[6] = fromIndices(latIdx, west, precision);
+        dst[7] = fromIndices(north, west, precision);
+    }
+
+    /**
+     * Returns the latitude of the centre of a cell, rounded the same way as UnlCore.decode.
+     */
+    static double latCentre(int latIdx, int precision) {
+        int bits = latBits(precision);
+        return roundedCentre(-90, 180, latIdx, bits, LAT_SCALES[bits]);
+    }
+
+    /**
+     * Returns the longitude of the centre of a cell, rounded the same way as UnlCore.decode.
+     */
+    static double lonCentre(int lonIdx, int precision) {
+        int bits = lonBits(precision);
+        return roundedCentre(-180, 360, lonIdx, bits, LON_SCALES[bits]);
+    }
+
+    /**
+     * Rounds the centre of cell idx of [min, min + range] split into 2^bits cells to the given number of decimal
+     * places, using BigDecimal.ROUND_HALF_DOWN semantics. The centre is the exact fraction
+     * (min * 2^(bits+1) + (2 * idx + 1) * range) / 2^(bits+1), so it is scaled by 10^scale = 5^scale * 2^scale
+     * and rounded with integer arithmetic; dividing the rounded integer by 10^scale then gives the correctly
+     * rounded double, like BigDecimal.doubleValue.
+     */
+    private static double roundedCentre(long min, long range, int idx, int bits, int scale) {
+        long scaled = (min * (1L << (bits + 1)) + (2L * idx + 1) * range) * POWERS_OF_FIVE[scale];
+        int shift = bits + 1 - scale;
+
+        long rounded;
+        if (shift <= 0) {
+            rounded = scaled << -shift;
+        } else {
+            long half = 1L << (shift - 1);
+            rounded = scaled >> shift;
+            long remainder = scaled - (rounded << shift);
+            if (remainder > half || (remainder == half && scaled < 0)) {
+                rounded++;
+            }
+        }
+        return rounded / POWERS_OF_TEN[scale];
+    }
+
+    static int lonBits(int precision) {
+        return (5 * precision + 1) / 2;
+    }
+
+    static int latBits(int precision) {
+        return 5 * precision / 2;
+    }
+
+    static double cellHeight(int precision) {
+        return 180.0 / (1L << latBits(precision));
+    }
+
+    static double cellWidth(int precision) {
+        return 360.0 / (1L << lonBits(precision));
+    }
+
+    static long fromIndices(int latIdx, int lonIdx, int precision) {
+        long hashBits;
+        if ((precision & 1) == 1) {
+            // odd number of bits: the longitude gets the extra, least significant one
+            hashBits = spread(lonIdx) | spread(latIdx) << 1;
+        } else {
+            hashBits = spread(lonIdx) << 1 | spread(latIdx);
+        }
+        return pack(hashBits, precision);
+    }
+
+    static int latIndex(long hashBits, int precision) {
+        return (int) compact((precision & 1) == 1 ? hashBits >>> 1 : hashBits);
+    }
+
+    static int lonIndex(long hashBits, int precision) {
+        return (int) compact((precision & 1) == 1 ? hashBits : hashBits >>> 1);
+    }
+
+    /**
+     * Returns the index of the cell containing value, when [min, min + range] is split into 2^bits cells.
+     * The result is the same as bisecting the range bit by bit: the cell edges are exact binary fractions,
+     * so the estimate is corrected against them instead of relying on the rounding of the division.
+     */
+    private static long quantize(double value, double min, double range, int bits) {
+        long cells = 1L << bits;
+        double step = range / cells;
+
+        long idx = Math.max(0, Math.min(cells - 1, (long) Math.floor((value - min) / step)));
+        if (value < min + idx * step) {
+            idx--;
+        } else if (idx + 1 < cells && value >= min + (idx + 1) * step) {
+            idx++;
+        }
+        return Math.max(0, Math.min(cells - 1, idx));
+    }
+
+    /**
+     * Spreads the low 32 bits of x to the even bit positions of the result.
+     */
+    private static long spread(long x) {
+        x &= 0x00000000FFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    /**
+     * Gathers the even bit positions of x into the low 32 bits of the result.
+     */
+    private static long compact(long x) {
+        x &= 0x5555555555555555L;
+        x = (x | (x >>> 1)) & 0x3333333333333333L;
+        x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+        return x;
+    }
+
+    @NotNull
+    static String toLocationId(long key) {
+        int precision = precision(key);
+        long hashBits = hashBits(key, precision);
+
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE32.charAt((int) (hashBits & 31));
+            hashBits >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    static long fromLocationId(@NotNull CharSequence locationId) {
+        return fromLocationId(locationId, 0, locationId.length());
+    }
+
+    static long fromLocationId(@NotNull CharSequence locationId, int start, int end) {
+        int precision = end - start;
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid locationId");
+        }
+
+        long hashBits = 0;
+        for (int i = start; i < end; i++) {
+            int idx = decodeChar(locationId.charAt(i));
+            if (idx == -1) throw new IllegalArgumentException("Invalid locationId");
+            hashBits = hashBits << 5 | idx;
+        }
+        return pack(hashBits, precision);
+    }
+}
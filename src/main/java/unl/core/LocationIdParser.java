@@ -0,0 +1,247 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Single-pass parser and validator of locationIds, reading chars, bytes or byte buffers in place.
+ * <p>
+ * A locationId is a span of base32 chars, in either case, optionally followed by an elevation: '@' and a floor
+ * number, or '#' and a height in centimetres, with an optional sign. The parse result is packed into a long instead
+ * of an object, so validating an id allocates nothing: the geohash span is the first {@link #geohashLength(long)}
+ * chars of the input, and the elevation is read with {@link #elevation(long)} and {@link #elevationType(long)}.
+ * Bytes are read as ASCII chars.
+ */
+public final class LocationIdParser {
+    /**
+     * The parse result of an invalid locationId.
+     */
+    public static final long INVALID = -1L;
+
+    private static final long HEIGHT_FLAG = 1L << 62;
+    private static final int MAX_ELEVATION_CHARS = 3;
+
+    private LocationIdParser() {
+    }
+
+    /**
+     * Parses a locationId.
+     *
+     * @param locationId the locationId.
+     * @return the packed parse result, or INVALID if the locationId is invalid.
+     */
+    public static long parse(@NotNull CharSequence locationId) {
+        return parseRange(locationId, 0, locationId.length());
+    }
+
+    /**
+     * Parses a locationId from a range of ASCII bytes.
+     *
+     * @param bytes  the bytes.
+     * @param offset the index of the first byte of the locationId.
+     * @param length the number of bytes of the locationId.
+     * @return the packed parse result, or INVALID if the locationId is invalid.
+     * @throws IndexOutOfBoundsException if the range is outside the array.
+     */
+    public static long parse(@NotNull byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+        return parseRange(bytes, offset, offset + length);
+    }
+
+    /**
+     * Parses a locationId from the ASCII bytes between the position and the limit of a buffer, without moving its
+     * position.
+     *
+     * @param buffer the buffer.
+     * @return the packed parse result, or INVALID if the locationId is invalid.
+     */
+    public static long parse(@NotNull ByteBuffer buffer) {
+        return parseRange(buffer, buffer.position(), buffer.limit());
+    }
+
+    /**
+     * Returns the number of chars of the geohash span, at the start of the input.
+     */
+    public static int geohashLength(long parsed) {
+        return (int) (parsed >>> 32) & 0x3fffffff;
+    }
+
+    /**
+     * Returns the elevation, 0 if the locationId has none.
+     */
+    public static int elevation(long parsed) {
+        return (int) parsed;
+    }
+
+    /**
+     * Returns whether the elevation is a height in centimetres ('#') rather than a floor ('@' or none).
+     */
+    public static boolean isHeightInCm(long parsed) {
+        return (parsed & HEIGHT_FLAG) != 0;
+    }
+
+    /**
+     * Returns the elevation type: "heightincm" or "floor".
+     */
+    @NotNull
+    public static String elevationType(long parsed) {
+        return isHeightInCm(parsed) ? "heightincm" : "floor";
+    }
+
+    /**
+     * Parses the chars from start to end of a CharSequence, byte array or byte buffer.
+     */
+    private static long parseRange(@NotNull Object source, int start, int end) {
+        int separator = start;
+        while (separator < end && LocationIdCodec.decodeChar(charAt(source, separator)) != -1) {
+            separator++;
+        }
+        int geohashLength = separator - start;
+        if (geohashLength == 0 || geohashLength > 0x3fffffff) {
+            return INVALID;
+        }
+        if (separator == end) {
+            return (long) geohashLength << 32;
+        }
+
+        char chr = charAt(source, separator);
+        if (chr != '@' && chr != '#') {
+            return INVALID;
+        }
+        int i = separator + 1;
+        boolean negative = false;
+        if (i < end && (charAt(source, i) == '-' || charAt(source, i) == '+')) {
+            negative = charAt(source, i) == '-';
+            i++;
+        }
+        if (i == end) {
+            return INVALID;
+        }
+
+        long elevation = 0;
+        for (; i < end; i++) {
+            char digit = charAt(source, i);
+            if (digit < '0' || digit > '9') {
+                return INVALID;
+            }
+            elevation = elevation * 10 + (digit - '0');
+            if (elevation > (long) Integer.MAX_VALUE + 1) {
+                return INVALID;
+            }
+        }
+        elevation = negative ? -elevation : elevation;
+        if (elevation > Integer.MAX_VALUE) {
+            return INVALID;
+        }
+        return (chr == '#' ? HEIGHT_FLAG : 0) | (long) geohashLength << 32 | (elevation & 0xffffffffL);
+    }
+
+    /**
+     * Returns whether the location string is a locationId the location endpoint accepts, exactly like the pattern
+     * {@code ^[0123456789bcdefghjkmnpqrstuvwxyz]{3,16}[@#]?[0-9]{0,3}$}.
+     */
+    static boolean matchesLocationIdPattern(@NotNull CharSequence location) {
+        int length = location.length();
+        int geohashLength = 0;
+        while (geohashLength < length && isLowerCaseBase32(location.charAt(geohashLength))) {
+            geohashLength++;
+        }
+        if (geohashLength < length && (location.charAt(geohashLength) == '@' || location.charAt(geohashLength) == '#')) {
+            // the separator must follow 3 to 16 chars and be followed by at most 3 digits
+            return geohashLength >= 3 && geohashLength <= 16 && length - geohashLength - 1 <= MAX_ELEVATION_CHARS
+                    && isDigits(location, geohashLength + 1, length);
+        }
+        if (geohashLength < length) {
+            return false;
+        }
+        // without a separator, up to 3 trailing digits may be the elevation
+        int digits = 0;
+        while (digits < length && digits <= MAX_ELEVATION_CHARS && isDigit(location.charAt(length - 1 - digits))) {
+            digits++;
+        }
+        return length >= 3 && length - Math.min(digits, MAX_ELEVATION_CHARS) <= 16;
+    }
+
+    /**
+     * Returns whether the location string is lat-lon coordinates the coordinates endpoint accepts, exactly like the
+     * pattern {@code ^-?[0-9]{0,2}\.?[0-9]{0,16},\s?-?[0-9]{0,3}\.?[0-9]{0,16}$}.
+     */
+    static boolean matchesCoordinatesPattern(@NotNull CharSequence location) {
+        int length = location.length();
+        int i = matchNumber(location, 0, length, 2);
+        if (i == -1 || i == length || location.charAt(i) != ',') {
+            return false;
+        }
+        i++;
+        if (i < length && isWhitespace(location.charAt(i))) {
+            i++;
+        }
+        return matchNumber(location, i, length, 3) == length;
+    }
+
+    /**
+     * Matches {@code -?[0-9]{0,integerDigits}\.?[0-9]{0,16}} from start, returning the index after the match or -1.
+     */
+    private static int matchNumber(@NotNull CharSequence chars, int start, int end, int integerDigits) {
+        int i = start;
+        if (i < end && chars.charAt(i) == '-') {
+            i++;
+        }
+        int digitsStart = i;
+        while (i < end && isDigit(chars.charAt(i))) {
+            i++;
+        }
+        int integerEnd = i;
+        if (i < end && chars.charAt(i) == '.') {
+            if (integerEnd - digitsStart > integerDigits) {
+                return -1;
+            }
+            i++;
+            int fractionStart = i;
+            while (i < end && isDigit(chars.charAt(i))) {
+                i++;
+            }
+            return i - fractionStart <= 16 ? i : -1;
+        }
+        // without a point, the digits are split between the integer and the fraction parts
+        return integerEnd - digitsStart <= integerDigits + 16 ? i : -1;
+    }
+
+    private static boolean isDigits(@NotNull CharSequence chars, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(chars.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char chr) {
+        return chr >= '0' && chr <= '9';
+    }
+
+    private static boolean isLowerCaseBase32(char chr) {
+        return LocationIdCodec.decodeChar(chr) != -1 && !(chr >= 'A' && chr <= 'Z');
+    }
+
+    /**
+     * Returns whether the char is whitespace as matched by \s: space, tab, newline, vertical tab, form feed or
+     * carriage return.
+     */
+    static boolean isWhitespace(char chr) {
+        return chr == ' ' || (chr >= '\t' && chr <= '\r');
+    }
+
+    private static char charAt(@NotNull Object source, int index) {
+        if (source instanceof byte[]) {
+            return (char) (((byte[]) source)[index] & 0xff);
+        }
+        if (source instanceof ByteBuffer) {
+            return (char) (((ByteBuffer) source).get(index) & 0xff);
+        }
+        return ((CharSequence) source).charAt(index);
+    }
+}
@@ -0,0 +1,322 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * In-memory spatial index of values located at latitude/longitude points.
+ * <p>
+ * Entries are kept sorted by the locationId key of their point at MAX_KEY_PRECISION. The entries inside a cell of
+ * any precision have consecutive keys, so a cell query is two binary searches and a scan of the matching range.
+ * Queries read an immutable snapshot and never block; updates build a new snapshot and publish it atomically,
+ * so they are meant to be batched with {@link #putAll(double[], double[], List)} rather than done one by one.
+ *
+ * @param <T> the type of the indexed values.
+ */
+public class LocationIndex<T> {
+    private static final int BOUNDS_MAX_CELLS = 32;
+
+    private volatile Snapshot snapshot = new Snapshot(new long[0], new double[0], new double[0], new Object[0]);
+
+    /**
+     * Adds a value at a point.
+     *
+     * @param lat   the latitude in degrees.
+     * @param lon   the longitude in degrees.
+     * @param value the value.
+     * @throws IllegalArgumentException if the coordinates are invalid.
+     */
+    public void put(double lat, double lon, @NotNull T value) {
+        putAll(new double[]{lat}, new double[]{lon}, Collections.singletonList(value));
+    }
+
+    /**
+     * Adds values at points, in a single update of the index.
+     *
+     * @param lats   the latitudes of the points in degrees.
+     * @param lons   the longitudes of the points in degrees.
+     * @param values the values, one for each point.
+     * @throws IllegalArgumentException if the arrays have different lengths or a coordinate is invalid.
+     */
+    public void putAll(@NotNull double[] lats, @NotNull double[] lons, @NotNull List<? extends T> values) {
+        if (lats.length != lons.length || lats.length != values.size()) {
+            throw new IllegalArgumentException("Invalid entries");
+        }
+
+        int count = lats.length;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = LocationIdCodec.encode(lats[i], lons[i], LocationIdCodec.MAX_PRECISION);
+        }
+        int[] order = sortedOrder(keys);
+
+        synchronized (this) {
+            Snapshot current = snapshot;
+            int size = current.keys.length + count;
+            Snapshot next = new Snapshot(new long[size], new double[size], new double[size], new Object[size]);
+
+            // merge the new entries into the current ones, after those with the same key
+            int i = 0, j = 0;
+            for (int n = 0; n < size; n++) {
+                if (j == count || (i < current.keys.length && current.keys[i] <= keys[order[j]])) {
+                    next.set(n, current.keys[i], current.lats[i], current.lons[i], current.values[i]);
+                    i++;
+                } else {
+                    int k = order[j++];
+                    next.set(n, keys[k], lats[k], lons[k], values.get(k));
+                }
+            }
+            snapshot = next;
+        }
+    }
+
+    /**
+     * Removes the values matching a predicate, in a single update of the index.
+     *
+     * @param filter the predicate returning true for the values to remove.
+     * @return the number of removed values.
+     */
+    public int removeIf(@NotNull Predicate<? super T> filter) {
+        synchronized (this) {
+            Snapshot current = snapshot;
+            int size = current.keys.length;
+            boolean[] removed = new boolean[size];
+            int kept = size;
+            for (int i = 0; i < size; i++) {
+                if (filter.test(current.value(i))) {
+                    removed[i] = true;
+                    kept--;
+                }
+            }
+            if (kept == size) {
+                return 0;
+            }
+
+            Snapshot next = new Snapshot(new long[kept], new double[kept], new double[kept], new Object[kept]);
+            for (int i = 0, n = 0; i < size; i++) {
+                if (!removed[i]) {
+                    next.set(n++, current.keys[i], current.lats[i], current.lons[i], current.values[i]);
+                }
+            }
+            snapshot = next;
+            return size - kept;
+        }
+    }
+
+    /**
+     * Returns the number of values in the index.
+     */
+    public int size() {
+        return snapshot.keys.length;
+    }
+
+    /**
+     * Returns the values located in a cell.
+     *
+     * @param key the locationId key of the cell, of any precision.
+     * @return the values in the cell, ordered by the key of their point.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    @NotNull
+    public List<T> query(long key) {
+        Snapshot current = snapshot;
+        List<T> values = new ArrayList<>();
+        current.collect(key, values);
+        return values;
+    }
+
+    /**
+     * Returns the values located in a cell.
+     *
+     * @param locationId the locationId of the cell, without elevation chars.
+     * @return the values in the cell, ordered by the key of their point.
+     * @throws IllegalArgumentException if the locationId is invalid.
+     */
+    @NotNull
+    public List<T> query(@NotNull CharSequence locationId) {
+        return query(LocationIdCodec.fromLocationId(locationId));
+    }
+
+    /**
+     * Returns the number of values located in a cell, without collecting them.
+     *
+     * @param key the locationId key of the cell, of any precision.
+     * @return the number of values in the cell.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    public int count(long key) {
+        Snapshot current = snapshot;
+        return current.upperBound(key) - current.lowerBound(key);
+    }
+
+    /**
+     * Returns the values located in a cell or in its eight neighbours.
+     *
+     * @param key the locationId key of the cell, of any precision.
+     * @return the values in the cell and its neighbours, each neighbour cell being returned once.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    @NotNull
+    public List<T> queryWithNeighbours(long key) {
+        Snapshot current = snapshot;
+        long[] cells = new long[9];
+        LocationIdCodec.neighbours(key, cells);
+        cells[8] = key;
+
+        // cells on the polar rows are their own northern or southern neighbour
+        List<T> values = new ArrayList<>();
+        for (int i = 0; i < cells.length; i++) {
+            boolean seen = false;
+            for (int j = 0; j < i && !seen; j++) {
+                seen = cells[j] == cells[i];
+            }
+            if (!seen) {
+                current.collect(cells[i], values);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values located inside n, e, s, w bounds. The bounds are covered with a few cells, whose entries
+     * are then checked against the bounds. Bounds with w greater than e cross the antimeridian.
+     *
+     * @param bounds the bounds; like cells, they own their southern and western edges only.
+     * @return the values inside the bounds, ordered by the key of their point.
+     * @throws IllegalArgumentException if the bounds are invalid.
+     */
+    @NotNull
+    public List<T> query(@NotNull Bounds bounds) {
+        Snapshot current = snapshot;
+        BoundsRegion region = new BoundsRegion(bounds);
+        List<T> values = new ArrayList<>();
+        for (long cell : RegionCoverer.cover(region, LocationIdCodec.MAX_PRECISION, BOUNDS_MAX_CELLS)) {
+            for (int i = current.lowerBound(cell), end = current.upperBound(cell); i < end; i++) {
+                if (region.contains(current.lats[i], current.lons[i])) {
+                    values.add(current.value(i));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the order of the keys after a stable sort, using a bottom-up merge sort of their indices.
+     */
+    static int[] sortedOrder(@NotNull long[] keys) {
+        int[] order = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[keys.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int from = 0; from < order.length; from += 2 * width) {
+                int middle = Math.min(from + width, order.length);
+                int to = Math.min(from + 2 * width, order.length);
+                int i = from, j = middle;
+                for (int n = from; n < to; n++) {
+                    if (j == to || (i < middle && keys[order[i]] <= keys[order[j]])) {
+                        buffer[n] = order[i++];
+                    } else {
+                        buffer[n] = order[j++];
+                    }
+                }
+            }
+            int[] sorted = buffer;
+            buffer = order;
+            order = sorted;
+        }
+        return order;
+    }
+
+    /**
+     * Returns the index of the first of the sorted keys inside or after the cell.
+     */
+    static int lowerBound(@NotNull LongBuffer keys, long cell) {
+        return search(keys, cell - lowestBit(cell));
+    }
+
+    /**
+     * Returns the index of the first of the sorted keys after the cell.
+     */
+    static int upperBound(@NotNull LongBuffer keys, long cell) {
+        return search(keys, cell + lowestBit(cell));
+    }
+
+    private static long lowestBit(long cell) {
+        return 1L << (62 - 5 * LocationIdCodec.precision(cell));
+    }
+
+    /**
+     * Returns the index of the first key not below the bound. Bounds are never keys of precision 12, and the upper
+     * bound of the last cell is 2^63, so the keys are compared as unsigned numbers.
+     */
+    private static int search(@NotNull LongBuffer keys, long bound) {
+        int low = 0, high = keys.limit();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keys.get(middle), bound) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The entries of the index at one point in time, sorted by key. Never modified once published.
+     */
+    private final class Snapshot {
+        final long[] keys;
+        final double[] lats;
+        final double[] lons;
+        final Object[] values;
+        private final LongBuffer sortedKeys;
+
+        Snapshot(long[] keys, double[] lats, double[] lons, Object[] values) {
+            this.keys = keys;
+            this.sortedKeys = LongBuffer.wrap(keys);
+            this.lats = lats;
+            this.lons = lons;
+            this.values = values;
+        }
+
+        void set(int i, long key, double lat, double lon, Object value) {
+            keys[i] = key;
+            lats[i] = lat;
+            lons[i] = lon;
+            values[i] = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        T value(int i) {
+            return (T) values[i];
+        }
+
+        void collect(long cell, List<T> out) {
+            for (int i = lowerBound(cell), end = upperBound(cell); i < end; i++) {
+                out.add(value(i));
+            }
+        }
+
+        /**
+         * Returns the index of the first entry inside or after the cell.
+         */
+        int lowerBound(long cell) {
+            return LocationIndex.lowerBound(sortedKeys, cell);
+        }
+
+        /**
+         * Returns the index of the first entry after the cell.
+         */
+        int upperBound(long cell) {
+            return LocationIndex.upperBound(sortedKeys, cell);
+        }
+    }
+}
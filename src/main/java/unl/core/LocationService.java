@@ -1,13 +1,25 @@
 package unl.core;
 
+import com.google.gson.JsonParseException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 public final class LocationService {
     private LocationService() {
@@ -16,45 +28,314 @@ public final class LocationService {
     private static final String GET_REQUEST_METHOD = "GET";
     private static final String AUTHORIZATION_HEADER = "Authorization";
     private static final String BEARER_AUTHENTICATION = "Bearer";
+    private static final int NO_TIMEOUT = 0;
 
     @Nullable
     public static String callEndpoint(@NotNull String endpoint, @NotNull String apiKey) throws UnlCoreException {
-        HttpURLConnection connection = null;
+        return callEndpoint(endpoint, apiKey, NO_TIMEOUT, NO_TIMEOUT);
+    }
+
+    /**
+     * Calls a location endpoint and returns the response body.
+     * <p>
+     * The response is always read to its end and the connection is never disconnected, so the JVM keeps the
+     * connection alive and reuses it for the next call to the same host.
+     *
+     * @param endpoint             the url of the endpoint.
+     * @param apiKey               the UNL API key used to access the location APIs.
+     * @param connectTimeoutMillis the connect timeout in milliseconds, 0 for none.
+     * @param readTimeoutMillis    the read timeout in milliseconds, 0 for none.
+     * @return the response body.
+     * @throws UnlCoreException if the call fails, times out or returns an error status.
+     */
+    @Nullable
+    public static String callEndpoint(@NotNull String endpoint, @NotNull String apiKey, int connectTimeoutMillis, int readTimeoutMillis) throws UnlCoreException {
+        return callEndpoint(endpoint, apiKey, connectTimeoutMillis, readTimeoutMillis, LocationService::readBody);
+    }
+
+    /**
+     * Calls a location endpoint and returns the response body, with the timeouts, retries, hedging and circuit
+     * breaker of a policy.
+     *
+     * @param endpoint the url of the endpoint.
+     * @param apiKey   the UNL API key used to access the location APIs.
+     * @param policy   the policy of the call.
+     * @return the response body.
+     * @throws UnlCoreException if the last attempt fails, times out or returns an error status, or the circuit breaker
+     *                          of the policy is open.
+     */
+    @Nullable
+    public static String callEndpoint(@NotNull String endpoint, @NotNull String apiKey, @NotNull CallPolicy policy) throws UnlCoreException {
+        return callEndpoint(endpoint, apiKey, policy, LocationService::readBody);
+    }
+
+    /**
+     * Reads a response body from the stream of the connection.
+     */
+    interface BodyReader<T> {
+        T read(@NotNull InputStream inputStream) throws IOException;
+    }
+
+    /**
+     * Calls a location endpoint and reads the response body straight from the connection. The reader must read the
+     * body to its end so the connection can be reused.
+     */
+    @Nullable
+    static <T> T callEndpoint(@NotNull String endpoint, @NotNull String apiKey, int connectTimeoutMillis, int readTimeoutMillis, @NotNull BodyReader<T> bodyReader) throws UnlCoreException {
+        UnlCoreListener listener = UnlCore.getListener();
+        if (listener == UnlCoreListener.NOOP) {
+            return exchange(endpoint, apiKey, connectTimeoutMillis, readTimeoutMillis, bodyReader, null);
+        }
+
+        listener.onEndpointCallStart(endpoint);
+        Exchange exchange = new Exchange();
+        long started = System.nanoTime();
+        Exception error = null;
+        try {
+            return exchange(endpoint, apiKey, connectTimeoutMillis, readTimeoutMillis, bodyReader, exchange);
+        } catch (UnlCoreException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            listener.onEndpointCall(endpoint, exchange.status, System.nanoTime() - started, exchange.bytes, error);
+        }
+    }
+
+    /**
+     * Calls a location endpoint with a policy, retrying the attempts that may succeed after a jittered backoff.
+     */
+    @Nullable
+    static <T> T callEndpoint(@NotNull String endpoint, @NotNull String apiKey, @NotNull CallPolicy policy, @NotNull BodyReader<T> bodyReader) throws UnlCoreException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return hedged(endpoint, apiKey, policy, bodyReader);
+            } catch (UnlCoreException e) {
+                if (attempt >= policy.getMaxAttempts() || !CallPolicy.isRetryable(e)) {
+                    throw e;
+                }
+                sleep(policy.backoffMillis(attempt));
+            }
+        }
+    }
+
+    /**
+     * Makes an attempt, sending a duplicate request if the first one takes longer than the hedge delay of the policy,
+     * and returning the first successful response, or the last failure.
+     */
+    @Nullable
+    private static <T> T hedged(@NotNull String endpoint, @NotNull String apiKey, @NotNull CallPolicy policy, @NotNull BodyReader<T> bodyReader) throws UnlCoreException {
+        long hedgeDelayNanos = policy.hedgeDelayNanos();
+        if (hedgeDelayNanos < 0) {
+            return guarded(endpoint, apiKey, policy, bodyReader);
+        }
 
+        CompletableFuture<T> primary = guardedAsync(endpoint, apiKey, policy, bodyReader);
+        try {
+            return primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            policy.onHedge();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnlCoreException("Interrupted while waiting for the location endpoint", e);
+        } catch (ExecutionException e) {
+            return await(primary);
+        }
+
+        CompletableFuture<T> hedge = guardedAsync(endpoint, apiKey, policy, bodyReader);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        BiConsumer<T, Throwable> onComplete = (result, t) -> {
+            if (t == null) {
+                first.complete(result);
+            } else if (pending.decrementAndGet() == 0) {
+                first.completeExceptionally(t);
+            }
+        };
+        primary.whenComplete(onComplete);
+        hedge.whenComplete(onComplete);
+        return await(first);
+    }
+
+    @NotNull
+    private static <T> CompletableFuture<T> guardedAsync(@NotNull String endpoint, @NotNull String apiKey, @NotNull CallPolicy policy, @NotNull BodyReader<T> bodyReader) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Hedging.EXECUTOR.execute(() -> {
+            try {
+                future.complete(guarded(endpoint, apiKey, policy, bodyReader));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Makes a single request, unless the circuit breaker of the policy is open, and records its outcome in the
+     * policy.
+     */
+    @Nullable
+    private static <T> T guarded(@NotNull String endpoint, @NotNull String apiKey, @NotNull CallPolicy policy, @NotNull BodyReader<T> bodyReader) throws UnlCoreException {
+        if (!policy.tryAcquire()) {
+            throw new UnlCoreException("The location endpoint is failing, calls are suspended", UnlCoreException.NO_STATUS);
+        }
+
+        long started = System.nanoTime();
+        try {
+            T result = callEndpoint(endpoint, apiKey, policy.getConnectTimeoutMillis(), policy.getReadTimeoutMillis(), bodyReader);
+            policy.onResponse(System.nanoTime() - started);
+            return result;
+        } catch (UnlCoreException e) {
+            if (CallPolicy.isRetryable(e)) {
+                policy.onFailure();
+            } else {
+                policy.onResponse(System.nanoTime() - started);
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            policy.onFailure();
+            throw e;
+        }
+    }
+
+    @Nullable
+    private static <T> T await(@NotNull CompletableFuture<T> future) throws UnlCoreException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnlCoreException("Interrupted while waiting for the location endpoint", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UnlCoreException) {
+                throw (UnlCoreException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new UnlCoreException(cause.getMessage(), cause);
+        }
+    }
+
+    private static void sleep(long millis) throws UnlCoreException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnlCoreException("Interrupted while waiting to retry the location endpoint", e);
+        }
+    }
+
+    /**
+     * Calls a location endpoint, recording the status and the size of the response in the exchange if there is one.
+     */
+    @Nullable
+    private static <T> T exchange(@NotNull String endpoint, @NotNull String apiKey, int connectTimeoutMillis, int readTimeoutMillis, @NotNull BodyReader<T> bodyReader, @Nullable Exchange exchange) throws UnlCoreException {
+        int status = UnlCoreException.NO_STATUS;
         try {
             URL url = new URL(endpoint);
-            connection = (HttpURLConnection) url.openConnection();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
 
             connection.setRequestMethod(GET_REQUEST_METHOD);
             connection.setRequestProperty(AUTHORIZATION_HEADER, BEARER_AUTHENTICATION + apiKey);
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
             connection.connect();
 
-            int status = connection.getResponseCode();
+            status = connection.getResponseCode();
+            if (exchange != null) {
+                exchange.status = status;
+            }
             switch (status) {
                 case HttpURLConnection.HTTP_OK:
                 case HttpURLConnection.HTTP_CREATED:
-                    BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    StringBuilder stringBuilder = new StringBuilder();
-                    String line;
-
-                    while ((line = bufferedReader.readLine()) != null) {
-                        stringBuilder.append(line + "\n");
+                    try (InputStream inputStream = counted(connection.getInputStream(), exchange)) {
+                        return bodyReader.read(inputStream);
                     }
-                    bufferedReader.close();
-                    return stringBuilder.toString();
                 default:
-                    throw new UnlCoreException("There was a problem calling the location endpoint: " + status);
+                    // drain the error body so the connection can be reused
+                    InputStream errorStream = connection.getErrorStream();
+                    if (errorStream != null) {
+                        readBody(counted(errorStream, exchange));
+                    }
+                    throw new UnlCoreException("There was a problem calling the location endpoint: " + status, status);
             }
-        } catch (IOException e) {
-            throw new UnlCoreException(e.getMessage(), e);
-        } finally {
-            if (connection != null) {
-                try {
-                    connection.disconnect();
-                } catch (Exception e) {
-                    throw new UnlCoreException(e.getMessage(), e);
-                }
+        } catch (IOException | JsonParseException e) {
+            throw new UnlCoreException(e.getMessage(), e, status);
+        }
+    }
+
+    @NotNull
+    private static InputStream counted(@NotNull InputStream inputStream, @Nullable Exchange exchange) {
+        return exchange == null ? inputStream : new CountingInputStream(inputStream, exchange);
+    }
+
+    @NotNull
+    private static String readBody(@NotNull InputStream inputStream) throws IOException {
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            StringBuilder stringBuilder = new StringBuilder();
+            char[] buffer = new char[4096];
+            int read;
+
+            while ((read = reader.read(buffer)) != -1) {
+                stringBuilder.append(buffer, 0, read);
+            }
+            return stringBuilder.toString();
+        }
+    }
+
+    /**
+     * Holder of the threads of the hedged attempts, created on the first one.
+     */
+    private static final class Hedging {
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "unl-location-hedging");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The status and the number of body bytes of a response, reported to the listener.
+     */
+    private static final class Exchange {
+        int status = -1;
+        long bytes;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Exchange exchange;
+
+        CountingInputStream(@NotNull InputStream inputStream, @NotNull Exchange exchange) {
+            super(inputStream);
+            this.exchange = exchange;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                exchange.bytes++;
             }
+            return read;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                exchange.bytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            exchange.bytes += skipped;
+            return skipped;
         }
     }
 }
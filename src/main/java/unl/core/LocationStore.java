@@ -0,0 +1,460 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Persistent store of the locations returned by the location APIs, keyed like {@link LocationCache} by the cell they
+ * lie in, so a restarted process resolves the cells it already knew without a call.
+ * <p>
+ * The file is append-only: a location is stored by appending a record, and the latest record of a cell supersedes the
+ * older ones. It holds a header (magic, version and precision), then records of a length, the cell, the hash of the
+ * words, the time the record was written, the point, the elevation, the bounds and the elevation type, geohash and
+ * words strings, in big-endian order. Records do not expire in the store: a {@link LocationCache} over it treats the
+ * records older than its time to live as misses. Opening the file only maps it and indexes the record offsets;
+ * locations are decoded when they are looked up. Stale records are dropped by {@link #compact()}, which also runs on
+ * open and after a put when they outnumber the live ones, so the file of a long-running process stays within twice the
+ * size of its live records. A record cut short by a crash is discarded on open.
+ * <p>
+ * Once closed, the store throws an IllegalStateException from all its methods.
+ */
+public class LocationStore implements Closeable {
+    private static final int MAGIC = 0x554e4c53;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 12;
+    private static final int RECORD_HEADER_SIZE = 24;
+    private static final int RECORD_FIXED_SIZE = RECORD_HEADER_SIZE + 6 * 8 + 4 + 3 * 2;
+
+    @NotNull
+    private final Path path;
+    private final int precision;
+    @NotNull
+    private final LongSupplier clock;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long size;
+    private long records;
+    private final HashMap<Long, Long> offsetsByCell = new HashMap<>();
+    // the offsets of the live records by the hash of their words, as different words may share a hash
+    private final HashMap<Integer, long[]> offsetsByWords = new HashMap<>();
+
+    private LocationStore(@NotNull Path path, int precision, @NotNull LongSupplier clock) {
+        this.path = path;
+        this.precision = precision;
+        this.clock = clock;
+    }
+
+    /**
+     * Opens a store file, or creates it with cells at the default precision: 9.
+     *
+     * @param path the store file.
+     * @return the store.
+     * @throws IOException if the file cannot be read or written, or is not a store file.
+     */
+    @NotNull
+    public static LocationStore open(@NotNull Path path) throws IOException {
+        return open(path, LocationCache.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Opens a store file, or creates it with cells at a precision. An existing file keeps the precision it was
+     * created with.
+     *
+     * @param path      the store file.
+     * @param precision the precision of the cells of a new file, from 1 to MAX_KEY_PRECISION.
+     * @return the store.
+     * @throws IllegalArgumentException if the precision is invalid.
+     * @throws IOException              if the file cannot be read or written, or is not a store file.
+     */
+    @NotNull
+    public static LocationStore open(@NotNull Path path, int precision) throws IOException {
+        return open(path, precision, System::currentTimeMillis);
+    }
+
+    /**
+     * Opens a store file with a clock of the write times of the records, in milliseconds since the epoch.
+     */
+    @NotNull
+    static LocationStore open(@NotNull Path path, int precision, @NotNull LongSupplier clock) throws IOException {
+        LocationIdCodec.checkPrecision(precision);
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt(precision);
+            header.flip();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.write(header, 0);
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.read(header, 0) != HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Invalid store file");
+            }
+        }
+        try {
+            LocationIdCodec.checkPrecision(header.getInt(8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid store file", e);
+        }
+
+        LocationStore store = new LocationStore(path, header.getInt(8), clock);
+        store.load();
+        if (store.getStaleRecords() > store.size()) {
+            store.compact();
+        }
+        return store;
+    }
+
+    /**
+     * Returns the stored location of the cell containing the coordinates.
+     *
+     * @param lat the latitude in degrees.
+     * @param lon the longitude in degrees.
+     * @return the location, or null if it is not stored.
+     * @throws IOException if the file cannot be read.
+     */
+    @Nullable
+    public Location get(double lat, double lon) throws IOException {
+        Stored stored = get(LocationIdCodec.encode(lat, lon, precision), Long.MAX_VALUE);
+        return stored != null ? stored.location : null;
+    }
+
+    /**
+     * Returns the stored location with the given words.
+     *
+     * @param words the words of the location.
+     * @return the location, or null if it is not stored.
+     * @throws IOException if the file cannot be read.
+     */
+    @Nullable
+    public Location getByWords(@NotNull String words) throws IOException {
+        Stored stored = getByWords(words, Long.MAX_VALUE);
+        return stored != null ? stored.location : null;
+    }
+
+    /**
+     * Appends a location to the store, superseding the location stored for its cell, and compacts the store when
+     * stale records outnumber the live ones. Locations with a non-zero elevation are not stored.
+     *
+     * @param location the location returned by the location APIs.
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void put(@NotNull Location location) throws IOException {
+        if (location.getElevation().getElevation() != 0) {
+            return;
+        }
+        ensureOpen();
+        long cell = LocationIdCodec.encode(location.getPoint().getLat(), location.getPoint().getLon(), precision);
+        ByteBuffer record = encode(cell, location, clock.getAsLong());
+        long offset = size;
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+        size += record.limit();
+        index(offset, cell, location.getWords().hashCode());
+        if (getStaleRecords() > size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the file with the live records only. The file is written next to the store first and then moved in
+     * place, so a crash leaves either the old or the new file. If the move fails, the store goes on with the old file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        // keep the records in the order they were appended
+        TreeMap<Long, Long> live = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : offsetsByCell.entrySet()) {
+            live.put(entry.getValue(), entry.getKey());
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt(precision);
+            header.flip();
+            out.write(header);
+            for (long offset : live.keySet()) {
+                ByteBuffer record = read(offset, 4);
+                out.write(read(offset, 4 + record.getInt(0)));
+            }
+            out.force(true);
+        }
+
+        channel.close();
+        channel = null;
+        mapped = null;
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // the old file is left as it was
+            try {
+                Files.deleteIfExists(temporary);
+                load();
+            } catch (IOException reopen) {
+                e.addSuppressed(reopen);
+            }
+            throw e;
+        }
+        load();
+    }
+
+    /**
+     * Returns the number of stored locations.
+     */
+    public synchronized int size() {
+        ensureOpen();
+        return offsetsByCell.size();
+    }
+
+    /**
+     * Returns the number of records superseded by a later record of the same cell, which compaction drops.
+     */
+    public synchronized long getStaleRecords() {
+        ensureOpen();
+        return records - offsetsByCell.size();
+    }
+
+    public synchronized int getPrecision() {
+        ensureOpen();
+        return precision;
+    }
+
+    /**
+     * Closes the store. Closing a closed store has no effect.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+            channel = null;
+            mapped = null;
+        }
+    }
+
+    /**
+     * Returns the stored location of a cell at the precision of the store, unless it was written more than
+     * maxAgeMillis ago.
+     */
+    @Nullable
+    synchronized Stored get(long cell, long maxAgeMillis) throws IOException {
+        ensureOpen();
+        Long offset = offsetsByCell.get(cell);
+        return offset != null ? stored(offset, null, maxAgeMillis) : null;
+    }
+
+    /**
+     * Returns the stored location with the given words, unless it was written more than maxAgeMillis ago.
+     */
+    @Nullable
+    synchronized Stored getByWords(@NotNull String words, long maxAgeMillis) throws IOException {
+        ensureOpen();
+        long[] offsets = offsetsByWords.get(words.hashCode());
+        if (offsets == null) {
+            return null;
+        }
+        // the latest record first; the others may be of other words with the same hash
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            Location location = readLocation(offsets[i]);
+            if (words.equals(location.getWords())) {
+                return stored(offsets[i], location, maxAgeMillis);
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private Stored stored(long offset, @Nullable Location location, long maxAgeMillis) throws IOException {
+        long ageMillis = Math.max(0, clock.getAsLong() - read(offset, RECORD_HEADER_SIZE).getLong(16));
+        if (ageMillis > maxAgeMillis) {
+            return null;
+        }
+        return new Stored(location != null ? location : readLocation(offset), ageMillis);
+    }
+
+    /**
+     * Maps the file and indexes its records, truncating a partially written last record.
+     */
+    private void load() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            scan();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            channel = null;
+            mapped = null;
+            throw e;
+        }
+    }
+
+    private void scan() throws IOException {
+        long fileSize = channel.size();
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, Integer.MAX_VALUE));
+        offsetsByCell.clear();
+        offsetsByWords.clear();
+        records = 0;
+
+        long offset = HEADER_SIZE;
+        while (fileSize - offset >= RECORD_HEADER_SIZE) {
+            ByteBuffer header = read(offset, RECORD_HEADER_SIZE);
+            int length = header.getInt(0);
+            if (length < RECORD_FIXED_SIZE - 4 || fileSize - offset - 4 < length) {
+                break;
+            }
+            index(offset, header.getLong(4), header.getInt(12));
+            offset += 4 + length;
+        }
+        if (offset < fileSize) {
+            mapped = null;
+            channel.truncate(offset);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(offset, Integer.MAX_VALUE));
+        }
+        size = offset;
+    }
+
+    private void index(long offset, long cell, int wordsHash) throws IOException {
+        records++;
+        Long superseded = offsetsByCell.put(cell, offset);
+        if (superseded != null) {
+            removeWordsOffset(read(superseded, RECORD_HEADER_SIZE).getInt(12), superseded);
+        }
+        long[] offsets = offsetsByWords.get(wordsHash);
+        if (offsets == null) {
+            offsetsByWords.put(wordsHash, new long[]{offset});
+        } else {
+            offsets = Arrays.copyOf(offsets, offsets.length + 1);
+            offsets[offsets.length - 1] = offset;
+            offsetsByWords.put(wordsHash, offsets);
+        }
+    }
+
+    private void removeWordsOffset(int wordsHash, long offset) {
+        long[] offsets = offsetsByWords.get(wordsHash);
+        if (offsets.length == 1) {
+            offsetsByWords.remove(wordsHash);
+            return;
+        }
+        long[] remaining = new long[offsets.length - 1];
+        int count = 0;
+        for (long other : offsets) {
+            if (other != offset) {
+                remaining[count++] = other;
+            }
+        }
+        offsetsByWords.put(wordsHash, remaining);
+    }
+
+    private void ensureOpen() {
+        if (channel == null) {
+            throw new IllegalStateException("Store closed");
+        }
+    }
+
+    @NotNull
+    private Location readLocation(long offset) throws IOException {
+        ByteBuffer record = read(offset, 4);
+        record = read(offset, 4 + record.getInt(0));
+        record.position(RECORD_HEADER_SIZE);
+
+        Point point = new Point(record.getDouble(), record.getDouble());
+        int elevation = record.getInt();
+        Bounds bounds = new Bounds(record.getDouble(), record.getDouble(), record.getDouble(), record.getDouble());
+        String elevationType = getString(record);
+        String geohash = getString(record);
+        String words = getString(record);
+        return new Location(point, new Elevation(elevation, elevationType), bounds, geohash, words);
+    }
+
+    /**
+     * Returns the bytes at an offset, from the mapped file when they lie within the mapping.
+     */
+    @NotNull
+    private ByteBuffer read(long offset, int length) throws IOException {
+        if (offset + length <= mapped.limit()) {
+            ByteBuffer slice = mapped.duplicate();
+            slice.position((int) offset).limit((int) offset + length);
+            return slice.slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Invalid store file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @NotNull
+    private static ByteBuffer encode(long cell, @NotNull Location location, long writtenAt) {
+        byte[] elevationType = location.getElevation().getElevationType().getBytes(StandardCharsets.UTF_8);
+        byte[] geohash = location.getGeohash().getBytes(StandardCharsets.UTF_8);
+        byte[] words = location.getWords().getBytes(StandardCharsets.UTF_8);
+        if (elevationType.length > 0xffff || geohash.length > 0xffff || words.length > 0xffff) {
+            throw new IllegalArgumentException("Invalid location");
+        }
+
+        int length = RECORD_FIXED_SIZE + elevationType.length + geohash.length + words.length;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length - 4).putLong(cell).putInt(location.getWords().hashCode()).putLong(writtenAt);
+        record.putDouble(location.getPoint().getLat()).putDouble(location.getPoint().getLon());
+        record.putInt(location.getElevation().getElevation());
+        Bounds bounds = location.getBounds();
+        record.putDouble(bounds.getN()).putDouble(bounds.getE()).putDouble(bounds.getS()).putDouble(bounds.getW());
+        putString(record, elevationType);
+        putString(record, geohash);
+        putString(record, words);
+        record.flip();
+        return record;
+    }
+
+    private static void putString(@NotNull ByteBuffer buffer, @NotNull byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    @NotNull
+    private static String getString(@NotNull ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A stored location and the time since its record was written.
+     */
+    static final class Stored {
+        @NotNull
+        final Location location;
+        final long ageMillis;
+
+        Stored(@NotNull Location location, long ageMillis) {
+            this.location = location;
+            this.ageMillis = ageMillis;
+        }
+    }
+}
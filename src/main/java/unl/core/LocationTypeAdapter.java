@@ -0,0 +1,153 @@
+package unl.core;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapter of locations, reading the responses of the location APIs token by token without building
+ * a tree of the document.
+ * <p>
+ * It reads location objects either wrapped in a "location" member, as returned by the APIs, or bare, and ignores
+ * unknown members. A missing elevation is read as the ground floor. A member of the wrong type, such as a null or
+ * non-numeric "lat", throws a {@link JsonParseException}. It writes locations wrapped, like the APIs. The adapter
+ * holds no state, so a single instance is shared by all threads.
+ */
+public class LocationTypeAdapter extends TypeAdapter<Location> {
+    @Override
+    public void write(JsonWriter out, Location location) throws IOException {
+        if (location == null) {
+            out.nullValue();
+            return;
+        }
+
+        Bounds bounds = location.getBounds();
+        out.beginObject().name("location").beginObject();
+        out.name("lat").value(location.getPoint().getLat());
+        out.name("lon").value(location.getPoint().getLon());
+        out.name("elevation").value(location.getElevation().getElevation());
+        out.name("elevationType").value(location.getElevation().getElevationType());
+        out.name("bounds").beginObject();
+        out.name("ne").beginObject().name("lat").value(bounds.getN()).name("lon").value(bounds.getE()).endObject();
+        out.name("sw").beginObject().name("lat").value(bounds.getS()).name("lon").value(bounds.getW()).endObject();
+        out.endObject();
+        out.name("geohash").value(location.getGeohash());
+        out.name("words").value(location.getWords());
+        out.endObject().endObject();
+    }
+
+    @Override
+    public Location read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        Fields fields = new Fields();
+        try {
+            readFields(in, fields);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException("Invalid location", e);
+        }
+        if (fields.geohash == null || fields.words == null || Double.isNaN(fields.lat) || Double.isNaN(fields.lon)
+                || Double.isNaN(fields.n) || Double.isNaN(fields.e) || Double.isNaN(fields.s) || Double.isNaN(fields.w)) {
+            throw new JsonParseException("Invalid location");
+        }
+        return new Location(
+                new Point(fields.lat, fields.lon),
+                new Elevation(fields.elevation, fields.elevationType),
+                new Bounds(fields.n, fields.e, fields.s, fields.w),
+                fields.geohash,
+                fields.words
+        );
+    }
+
+    private static void readFields(JsonReader in, Fields fields) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "location":
+                    readFields(in, fields);
+                    break;
+                case "lat":
+                    fields.lat = in.nextDouble();
+                    break;
+                case "lon":
+                    fields.lon = in.nextDouble();
+                    break;
+                case "elevation":
+                    fields.elevation = in.nextInt();
+                    break;
+                case "elevationType":
+                    fields.elevationType = in.nextString();
+                    break;
+                case "bounds":
+                    readBounds(in, fields);
+                    break;
+                case "geohash":
+                    fields.geohash = in.nextString();
+                    break;
+                case "words":
+                    fields.words = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static void readBounds(JsonReader in, Fields fields) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String corner = in.nextName();
+            if (!corner.equals("ne") && !corner.equals("sw")) {
+                in.skipValue();
+                continue;
+            }
+
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "lat":
+                        lat = in.nextDouble();
+                        break;
+                    case "lon":
+                        lon = in.nextDouble();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (corner.equals("ne")) {
+                fields.n = lat;
+                fields.e = lon;
+            } else {
+                fields.s = lat;
+                fields.w = lon;
+            }
+        }
+        in.endObject();
+    }
+
+    private static final class Fields {
+        double lat = Double.NaN;
+        double lon = Double.NaN;
+        int elevation;
+        String elevationType = "floor";
+        double n = Double.NaN;
+        double e = Double.NaN;
+        double s = Double.NaN;
+        double w = Double.NaN;
+        String geohash;
+        String words;
+    }
+}
@@ -0,0 +1,249 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only spatial index stored in a file and memory-mapped, so it is ready as soon as it is opened and the
+ * processes reading the same file share its pages.
+ * <p>
+ * Like {@link LocationIndex}, entries are sorted by the locationId key of their point at MAX_KEY_PRECISION, and the
+ * entries of a cell are found with two binary searches over the mapped keys. The file, written in big-endian order
+ * by {@link #write(Path, double[], double[], List)}, holds a header (magic, version and entry count), then the
+ * sorted keys, the latitudes, the longitudes, the offsets of the payloads (one more than the entries) and the
+ * payload bytes.
+ */
+public class MappedLocationIndex {
+    private static final int MAGIC = 0x554e4c49;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BOUNDS_MAX_CELLS = 32;
+
+    private final int size;
+    private final LongBuffer keys;
+    private final DoubleBuffer lats;
+    private final DoubleBuffer lons;
+    private final LongBuffer offsets;
+    private final ByteBuffer payloads;
+
+    private MappedLocationIndex(int size, LongBuffer keys, DoubleBuffer lats, DoubleBuffer lons, LongBuffer offsets, ByteBuffer payloads) {
+        this.size = size;
+        this.keys = keys;
+        this.lats = lats;
+        this.lons = lons;
+        this.offsets = offsets;
+        this.payloads = payloads;
+    }
+
+    /**
+     * Writes an index file. The file is written next to its destination first and then moved in place, so readers
+     * never open a partially written index.
+     *
+     * @param path     the index file.
+     * @param lats     the latitudes of the points in degrees.
+     * @param lons     the longitudes of the points in degrees.
+     * @param payloads the payloads, one for each point.
+     * @throws IllegalArgumentException if the arrays have different lengths, a coordinate is invalid or the payloads
+     *                                  exceed 2GB.
+     * @throws IOException              if the file cannot be written.
+     */
+    public static void write(@NotNull Path path, @NotNull double[] lats, @NotNull double[] lons, @NotNull List<byte[]> payloads) throws IOException {
+        if (lats.length != lons.length || lats.length != payloads.size()) {
+            throw new IllegalArgumentException("Invalid entries");
+        }
+
+        int count = lats.length;
+        long[] keys = new long[count];
+        long payloadSize = 0;
+        for (int i = 0; i < count; i++) {
+            keys[i] = LocationIdCodec.encode(lats[i], lons[i], LocationIdCodec.MAX_PRECISION);
+            payloadSize += payloads.get(i).length;
+        }
+        if (payloadSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid entries");
+        }
+        int[] order = LocationIndex.sortedOrder(keys);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            writeEntries(temporary, keys, lats, lons, payloads, order);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw e;
+        }
+    }
+
+    private static void writeEntries(@NotNull Path temporary, @NotNull long[] keys, @NotNull double[] lats, @NotNull double[] lons,
+                                     @NotNull List<byte[]> payloads, @NotNull int[] order) throws IOException {
+        int count = keys.length;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(count);
+            for (int i : order) {
+                out.writeLong(keys[i]);
+            }
+            for (int i : order) {
+                out.writeDouble(lats[i]);
+            }
+            for (int i : order) {
+                out.writeDouble(lons[i]);
+            }
+            long offset = 0;
+            for (int i : order) {
+                out.writeLong(offset);
+                offset += payloads.get(i).length;
+            }
+            out.writeLong(offset);
+            for (int i : order) {
+                out.write(payloads.get(i));
+            }
+        }
+    }
+
+    /**
+     * Opens an index file. The file is mapped read-only, and its pages are loaded by the operating system when
+     * queries first touch them.
+     *
+     * @param path the index file.
+     * @return the index.
+     * @throws IOException if the file cannot be read or is not a valid index file.
+     */
+    @NotNull
+    public static MappedLocationIndex open(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Invalid index file");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            long count = header.getLong(8);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || count < 0 || count > (Integer.MAX_VALUE - 8) / 8) {
+                throw new IOException("Invalid index file");
+            }
+
+            long keysStart = HEADER_SIZE;
+            long latsStart = keysStart + 8 * count;
+            long lonsStart = latsStart + 8 * count;
+            long offsetsStart = lonsStart + 8 * count;
+            long payloadsStart = offsetsStart + 8 * (count + 1);
+            if (fileSize < payloadsStart || fileSize - payloadsStart > Integer.MAX_VALUE) {
+                throw new IOException("Invalid index file");
+            }
+
+            MappedLocationIndex index = new MappedLocationIndex(
+                    (int) count,
+                    channel.map(FileChannel.MapMode.READ_ONLY, keysStart, 8 * count).asLongBuffer(),
+                    channel.map(FileChannel.MapMode.READ_ONLY, latsStart, 8 * count).asDoubleBuffer(),
+                    channel.map(FileChannel.MapMode.READ_ONLY, lonsStart, 8 * count).asDoubleBuffer(),
+                    channel.map(FileChannel.MapMode.READ_ONLY, offsetsStart, 8 * (count + 1)).asLongBuffer(),
+                    channel.map(FileChannel.MapMode.READ_ONLY, payloadsStart, fileSize - payloadsStart)
+            );
+            if (index.offsets.get((int) count) != fileSize - payloadsStart) {
+                throw new IOException("Invalid index file");
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the number of entries in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the payloads of the entries located in a cell. The payloads are read-only views of the mapped file.
+     *
+     * @param key the locationId key of the cell, of any precision.
+     * @return the payloads of the entries in the cell, ordered by the key of their point.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    @NotNull
+    public List<ByteBuffer> query(long key) {
+        List<ByteBuffer> results = new ArrayList<>();
+        for (int i = lowerBound(key), end = upperBound(key); i < end; i++) {
+            results.add(payload(i));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the payloads of the entries located in a cell.
+     *
+     * @param locationId the locationId of the cell, without elevation chars.
+     * @return the payloads of the entries in the cell, ordered by the key of their point.
+     * @throws IllegalArgumentException if the locationId is invalid.
+     */
+    @NotNull
+    public List<ByteBuffer> query(@NotNull CharSequence locationId) {
+        return query(LocationIdCodec.fromLocationId(locationId));
+    }
+
+    /**
+     * Returns the number of entries located in a cell, without reading their payloads.
+     *
+     * @param key the locationId key of the cell, of any precision.
+     * @return the number of entries in the cell.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    public int count(long key) {
+        return upperBound(key) - lowerBound(key);
+    }
+
+    /**
+     * Returns the payloads of the entries located inside n, e, s, w bounds. Bounds with w greater than e cross the
+     * antimeridian.
+     *
+     * @param bounds the bounds; like cells, they own their southern and western edges only.
+     * @return the payloads of the entries inside the bounds, ordered by the key of their point.
+     * @throws IllegalArgumentException if the bounds are invalid.
+     */
+    @NotNull
+    public List<ByteBuffer> query(@NotNull Bounds bounds) {
+        BoundsRegion region = new BoundsRegion(bounds);
+        List<ByteBuffer> results = new ArrayList<>();
+        for (long cell : RegionCoverer.cover(region, LocationIdCodec.MAX_PRECISION, BOUNDS_MAX_CELLS)) {
+            for (int i = lowerBound(cell), end = upperBound(cell); i < end; i++) {
+                if (region.contains(lats.get(i), lons.get(i))) {
+                    results.add(payload(i));
+                }
+            }
+        }
+        return results;
+    }
+
+    private ByteBuffer payload(int i) {
+        ByteBuffer payload = payloads.duplicate();
+        payload.position((int) offsets.get(i));
+        payload.limit((int) offsets.get(i + 1));
+        return payload.slice().asReadOnlyBuffer();
+    }
+
+    private int lowerBound(long cell) {
+        return LocationIndex.lowerBound(keys, cell);
+    }
+
+    private int upperBound(long cell) {
+        return LocationIndex.upperBound(keys, cell);
+    }
+}
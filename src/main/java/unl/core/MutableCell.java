@@ -0,0 +1,69 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reusable holder for a decoded locationId: the centre point, the elevation and the n, e, s, w bounds of the cell.
+ * It is filled by {@link UnlCore#decodeInto(CharSequence, MutableCell)} and can be reused between calls,
+ * so decoding does not allocate.
+ */
+public class MutableCell {
+    private double lat;
+    private double lon;
+    private int elevation;
+    @NotNull
+    private String elevationType = "floor";
+    private double n;
+    private double e;
+    private double s;
+    private double w;
+
+    void set(double lat, double lon, int elevation, @NotNull String elevationType, double n, double e, double s, double w) {
+        this.lat = lat;
+        this.lon = lon;
+        this.elevation = elevation;
+        this.elevationType = elevationType;
+        this.n = n;
+        this.e = e;
+        this.s = s;
+        this.w = w;
+    }
+
+    public double getLat() {
+        return lat;
+    }
+
+    public double getLon() {
+        return lon;
+    }
+
+    public int getElevation() {
+        return elevation;
+    }
+
+    @NotNull
+    public String getElevationType() {
+        return elevationType;
+    }
+
+    public double getN() {
+        return n;
+    }
+
+    public double getE() {
+        return e;
+    }
+
+    public double getS() {
+        return s;
+    }
+
+    public double getW() {
+        return w;
+    }
+
+    @NotNull
+    public PointWithElevation toPointWithElevation() {
+        return new PointWithElevation(new Point(lat, lon), new Elevation(elevation, elevationType), new Bounds(n, e, s, w));
+    }
+}
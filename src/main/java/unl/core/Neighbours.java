@@ -6,6 +6,18 @@ import org.jetbrains.annotations.Nullable;
 import java.util.Objects;
 
 public class Neighbours {
+    /**
+     * Positions of the neighbours in the arrays filled by UnlCore.neighbours(long, long[]).
+     */
+    public static final int N = 0;
+    public static final int NE = 1;
+    public static final int E = 2;
+    public static final int SE = 3;
+    public static final int S = 4;
+    public static final int SW = 5;
+    public static final int W = 6;
+    public static final int NW = 7;
+
     @NotNull
     private String n;
     @NotNull
@@ -0,0 +1,296 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+
+/**
+ * Fills polygons with the cells of one precision whose centre lies inside them.
+ * <p>
+ * Cells are subdivided from precision 1 down, on a ForkJoinPool. Every cell is tested once, against the polygon
+ * edges that cross its parent only; a cell crossed by no edge is either completely inside or completely outside
+ * the polygon, which a single point-in-polygon test of its centre decides, so its descendants are emitted or
+ * skipped without further tests. Point-in-polygon tests only look at the edges of one latitude band.
+ */
+final class PolygonFiller {
+    private static final int MAX_BANDS = 4096;
+    private static final int FORK_EDGES = 16;
+
+    /**
+     * Edge coordinates: edge i goes from (lons[2i], lats[2i]) to (lons[2i+1], lats[2i+1]).
+     */
+    private final double[] lons;
+    private final double[] lats;
+    private final int edgeCount;
+
+    private final double minLat;
+    private final double bandHeight;
+    private final int[][] bands;
+
+    /**
+     * @param polygon the rings of the polygon, the first one being the outline and the others its holes. Each ring
+     *                is an array of [lon, lat] positions; rings are closed automatically.
+     */
+    PolygonFiller(@NotNull double[][][] polygon) {
+        int capacity = 0;
+        for (double[][] ring : polygon) {
+            if (ring.length < 3) {
+                throw new IllegalArgumentException("Invalid polygon");
+            }
+            capacity += ring.length;
+        }
+
+        lons = new double[2 * capacity];
+        lats = new double[2 * capacity];
+        int edges = 0;
+        double south = Double.POSITIVE_INFINITY;
+        double north = Double.NEGATIVE_INFINITY;
+        for (double[][] ring : polygon) {
+            for (int i = 0; i < ring.length; i++) {
+                double[] from = ring[i];
+                double[] to = ring[(i + 1) % ring.length];
+                checkPosition(from);
+                if (from[0] == to[0] && from[1] == to[1]) {
+                    continue;
+                }
+                lons[2 * edges] = from[0];
+                lats[2 * edges] = from[1];
+                lons[2 * edges + 1] = to[0];
+                lats[2 * edges + 1] = to[1];
+                south = Math.min(south, from[1]);
+                north = Math.max(north, from[1]);
+                edges++;
+            }
+        }
+        if (edges < 3) {
+            throw new IllegalArgumentException("Invalid polygon");
+        }
+        edgeCount = edges;
+
+        // index the edges by latitude band, for the point-in-polygon tests
+        int bandCount = Math.min(MAX_BANDS, edges);
+        minLat = south;
+        bandHeight = Math.max((north - south) / bandCount, Double.MIN_NORMAL);
+        int[] sizes = new int[bandCount];
+        for (int i = 0; i < edges; i++) {
+            for (int band = band(Math.min(lats[2 * i], lats[2 * i + 1]), bandCount); band <= band(Math.max(lats[2 * i], lats[2 * i + 1]), bandCount); band++) {
+                sizes[band]++;
+            }
+        }
+        bands = new int[bandCount][];
+        for (int band = 0; band < bandCount; band++) {
+            bands[band] = new int[sizes[band]];
+            sizes[band] = 0;
+        }
+        for (int i = 0; i < edges; i++) {
+            for (int band = band(Math.min(lats[2 * i], lats[2 * i + 1]), bandCount); band <= band(Math.max(lats[2 * i], lats[2 * i + 1]), bandCount); band++) {
+                bands[band][sizes[band]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted keys of the cells of the given precision whose centre lies inside the polygon.
+     */
+    @NotNull
+    long[] fill(int precision, @NotNull ForkJoinPool pool) {
+        LocationIdCodec.checkPrecision(precision);
+        return pool.invoke(new FillTask(this, allEdges(), 0, 0, precision, null)).toArray();
+    }
+
+    /**
+     * Passes the keys of the cells of the given precision whose centre lies inside the polygon to the consumer,
+     * which is called concurrently from the pool threads, in no particular order.
+     */
+    void fill(int precision, @NotNull ForkJoinPool pool, @NotNull LongConsumer consumer) {
+        LocationIdCodec.checkPrecision(precision);
+        pool.invoke(new FillTask(this, allEdges(), 0, 0, precision, consumer));
+    }
+
+    private int[] allEdges() {
+        int[] edges = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            edges[i] = i;
+        }
+        return edges;
+    }
+
+    private int band(double lat, int bandCount) {
+        return (int) Math.max(0, Math.min(bandCount - 1, Math.floor((lat - minLat) / bandHeight)));
+    }
+
+    /**
+     * Returns whether the point is inside the polygon, by counting the edges crossed by a ray going east from it.
+     */
+    boolean contains(double lat, double lon) {
+        if (lat < minLat || lat > minLat + bandHeight * bands.length) {
+            return false;
+        }
+
+        boolean inside = false;
+        for (int i : bands[band(lat, bands.length)]) {
+            double lat1 = lats[2 * i], lat2 = lats[2 * i + 1];
+            if ((lat1 > lat) != (lat2 > lat)) {
+                double lon1 = lons[2 * i], lon2 = lons[2 * i + 1];
+                if (lon < lon1 + (lat - lat1) * (lon2 - lon1) / (lat2 - lat1)) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Returns whether edge i has a point in the closed rectangle, by clipping it (Liang-Barsky).
+     */
+    private boolean crosses(int i, double s, double w, double n, double e) {
+        double lon1 = lons[2 * i], lat1 = lats[2 * i];
+        double dLon = lons[2 * i + 1] - lon1, dLat = lats[2 * i + 1] - lat1;
+        double[] p = {-dLon, dLon, -dLat, dLat};
+        double[] q = {lon1 - w, e - lon1, lat1 - s, n - lat1};
+
+        double t0 = 0, t1 = 1;
+        for (int side = 0; side < 4; side++) {
+            if (p[side] == 0) {
+                if (q[side] < 0) {
+                    return false;
+                }
+            } else {
+                double t = q[side] / p[side];
+                if (p[side] < 0) {
+                    if (t > t1) return false;
+                    t0 = Math.max(t0, t);
+                } else {
+                    if (t < t0) return false;
+                    t1 = Math.min(t1, t);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void checkPosition(double[] position) {
+        if (position.length < 2 || Double.isNaN(position[0]) || Double.isNaN(position[1])
+                || position[0] < -180 || position[0] > 180 || position[1] < -90 || position[1] > 90) {
+            throw new IllegalArgumentException("Invalid polygon");
+        }
+    }
+
+    /**
+     * Fills one cell: the root task (precision 0) stands for the whole world and only splits into the 32 cells of
+     * precision 1. Results are collected in key order, unless they go to a consumer.
+     */
+    private static final class FillTask extends RecursiveTask<LongList> {
+        private static final long serialVersionUID = 1L;
+
+        private final PolygonFiller filler;
+        private final int[] edges;
+        private final long key;
+        private final int keyPrecision;
+        private final int precision;
+        @Nullable
+        private final LongConsumer consumer;
+
+        FillTask(PolygonFiller filler, int[] edges, long key, int keyPrecision, int precision, @Nullable LongConsumer consumer) {
+            this.filler = filler;
+            this.edges = edges;
+            this.key = key;
+            this.keyPrecision = keyPrecision;
+            this.precision = precision;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected LongList compute() {
+            LongList cells = new LongList();
+            LongConsumer sink = consumer != null ? consumer : cells::add;
+
+            List<FillTask> forked = new ArrayList<>();
+            List<LongList> parts = new ArrayList<>();
+            for (int chr = 0; chr < 32; chr++) {
+                long child = keyPrecision == 0 ? LocationIdCodec.pack(chr, 1) : RegionCoverer.child(key, keyPrecision, chr);
+                int childPrecision = keyPrecision + 1;
+                int[] childEdges = crossingEdges(child, childPrecision);
+
+                if (childEdges.length == 0) {
+                    if (filler.contains(centreLat(child, childPrecision), centreLon(child, childPrecision))) {
+                        if (childPrecision == precision) {
+                            sink.accept(child);
+                        } else {
+                            RegionCoverer.forEachDescendant(child, childPrecision, precision, sink);
+                        }
+                    }
+                } else if (childPrecision == precision) {
+                    if (filler.contains(centreLat(child, childPrecision), centreLon(child, childPrecision))) {
+                        sink.accept(child);
+                    }
+                } else {
+                    FillTask task = new FillTask(filler, childEdges, child, childPrecision, precision, consumer);
+                    if (childEdges.length >= FORK_EDGES && childPrecision < precision - 1) {
+                        // keep the order of the results: cells collected so far come before the forked task's
+                        parts.add(cells);
+                        cells = new LongList();
+                        sink = consumer != null ? consumer : cells::add;
+                        task.fork();
+                        forked.add(task);
+                        parts.add(null);
+                    } else {
+                        LongList result = task.compute();
+                        if (consumer == null) {
+                            cells.addAll(result);
+                        }
+                    }
+                }
+            }
+
+            if (forked.isEmpty()) {
+                return cells;
+            }
+            parts.add(cells);
+            LongList result = new LongList();
+            int next = 0;
+            for (LongList part : parts) {
+                LongList cellsOfPart = part != null ? part : forked.get(next++).join();
+                if (consumer == null) {
+                    result.addAll(cellsOfPart);
+                }
+            }
+            return result;
+        }
+
+        private int[] crossingEdges(long cell, int cellPrecision) {
+            long hashBits = LocationIdCodec.hashBits(cell, cellPrecision);
+            int latIdx = LocationIdCodec.latIndex(hashBits, cellPrecision);
+            int lonIdx = LocationIdCodec.lonIndex(hashBits, cellPrecision);
+            double latStep = LocationIdCodec.cellHeight(cellPrecision);
+            double lonStep = LocationIdCodec.cellWidth(cellPrecision);
+            double s = -90 + latIdx * latStep, n = s + latStep;
+            double w = -180 + lonIdx * lonStep, e = w + lonStep;
+
+            int[] crossing = new int[edges.length];
+            int count = 0;
+            for (int edge : edges) {
+                if (filler.crosses(edge, s, w, n, e)) {
+                    crossing[count++] = edge;
+                }
+            }
+            return count == edges.length ? crossing : Arrays.copyOf(crossing, count);
+        }
+
+        private static double centreLat(long cell, int cellPrecision) {
+            int latIdx = LocationIdCodec.latIndex(LocationIdCodec.hashBits(cell, cellPrecision), cellPrecision);
+            return -90 + (latIdx + 0.5) * LocationIdCodec.cellHeight(cellPrecision);
+        }
+
+        private static double centreLon(long cell, int cellPrecision) {
+            int lonIdx = LocationIdCodec.lonIndex(LocationIdCodec.hashBits(cell, cellPrecision), cellPrecision);
+            return -180 + (lonIdx + 0.5) * LocationIdCodec.cellWidth(cellPrecision);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+
+/**
+ * Covers regions with a mix of cells of different precisions.
+ * <p>
+ * The region is subdivided from precision 1 down: cells inside the region are kept whole, so a coarse cell stands in
+ * for all of its descendants, and only the cells crossing the region boundary are split into their 32 children.
+ * Each precision level is refined as a whole, in parallel when it is large, as long as the covering stays within the
+ * cell budget; the boundary cells of the last level are kept as they are.
+ */
+final class RegionCoverer {
+    private static final int SEQUENTIAL_CHUNK = 512;
+
+    private RegionCoverer() {
+    }
+
+    /**
+     * Returns the sorted keys of the cells covering the region. The result may only hold more than maxCells cells
+     * when the region already crosses more than maxCells cells of precision 1.
+     */
+    @NotNull
+    static long[] cover(@NotNull CellRegion region, int maxPrecision, int maxCells) {
+        LocationIdCodec.checkPrecision(maxPrecision);
+        if (maxCells < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of cells");
+        }
+
+        LongList covering = new LongList();
+        LongList frontier = new LongList(32);
+        for (int chr = 0; chr < 32; chr++) {
+            classify(region, LocationIdCodec.pack(chr, 1), covering, frontier);
+        }
+
+        for (int precision = 1; precision < maxPrecision && frontier.size() > 0; precision++) {
+            LongList[] children = expand(region, frontier);
+            if ((long) covering.size() + children[0].size() + children[1].size() > maxCells) {
+                break;
+            }
+            covering.addAll(children[0]);
+            frontier = children[1];
+        }
+        covering.addAll(frontier);
+
+        long[] keys = covering.toArray();
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Returns the sorted keys of all cells of the given precision that intersect the region. Cells contained in the
+     * region are expanded to their descendants without further tests.
+     */
+    @NotNull
+    static long[] fill(@NotNull CellRegion region, int precision) {
+        LocationIdCodec.checkPrecision(precision);
+
+        LongList cells = new LongList();
+        for (int chr = 0; chr < 32; chr++) {
+            fill(region, LocationIdCodec.pack(chr, 1), 1, precision, cells);
+        }
+        return cells.toArray();
+    }
+
+    private static void fill(CellRegion region, long key, int keyPrecision, int precision, LongList cells) {
+        int relation = relate(region, key);
+        if (relation == CellRegion.DISJOINT) {
+            return;
+        }
+        if (keyPrecision == precision) {
+            cells.add(key);
+        } else if (relation == CellRegion.CONTAINS) {
+            forEachDescendant(key, keyPrecision, precision, cells::add);
+        } else {
+            for (int chr = 0; chr < 32; chr++) {
+                fill(region, child(key, keyPrecision, chr), keyPrecision + 1, precision, cells);
+            }
+        }
+    }
+
+    /**
+     * Passes the keys of all descendants of a cell at the given precision to the consumer, in ascending order.
+     */
+    static void forEachDescendant(long key, int keyPrecision, int precision, @NotNull LongConsumer consumer) {
+        int extraBits = 5 * (precision - keyPrecision);
+        long first = LocationIdCodec.hashBits(key, keyPrecision) << extraBits;
+        long count = 1L << extraBits;
+        for (long i = 0; i < count; i++) {
+            consumer.accept(LocationIdCodec.pack(first | i, precision));
+        }
+    }
+
+    /**
+     * Returns how the region relates to the cell of the given key.
+     */
+    static int relate(@NotNull CellRegion region, long key) {
+        int precision = LocationIdCodec.precision(key);
+        long hashBits = LocationIdCodec.hashBits(key, precision);
+        int latIdx = LocationIdCodec.latIndex(hashBits, precision);
+        int lonIdx = LocationIdCodec.lonIndex(hashBits, precision);
+        double latStep = LocationIdCodec.cellHeight(precision);
+        double lonStep = LocationIdCodec.cellWidth(precision);
+
+        return region.relate(
+                -90 + latIdx * latStep,
+                -180 + lonIdx * lonStep,
+                -90 + (latIdx + 1) * latStep,
+                -180 + (lonIdx + 1) * lonStep
+        );
+    }
+
+    /**
+     * Returns the key of a child of a cell: chr is the base32 value of the child's last locationId character.
+     */
+    static long child(long key, int precision, int chr) {
+        return LocationIdCodec.pack(LocationIdCodec.hashBits(key, precision) << 5 | chr, precision + 1);
+    }
+
+    private static void classify(CellRegion region, long key, LongList contained, LongList intersecting) {
+        switch (relate(region, key)) {
+            case CellRegion.CONTAINS:
+                contained.add(key);
+                break;
+            case CellRegion.INTERSECTS:
+                intersecting.add(key);
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Splits every cell of the frontier into its children, returning the contained and the intersecting ones.
+     */
+    private static LongList[] expand(CellRegion region, LongList frontier) {
+        ExpandTask task = new ExpandTask(region, frontier, 0, frontier.size());
+        if (frontier.size() <= SEQUENTIAL_CHUNK) {
+            return task.compute();
+        }
+        return ForkJoinPool.commonPool().invoke(task);
+    }
+
+    private static final class ExpandTask extends RecursiveTask<LongList[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final CellRegion region;
+        private final LongList frontier;
+        private final int from;
+        private final int to;
+
+        ExpandTask(CellRegion region, LongList frontier, int from, int to) {
+            this.region = region;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongList[] compute() {
+            if (to - from > SEQUENTIAL_CHUNK) {
+                int middle = (from + to) >>> 1;
+                ExpandTask left = new ExpandTask(region, frontier, from, middle);
+                left.fork();
+                LongList[] right = new ExpandTask(region, frontier, middle, to).compute();
+                LongList[] result = left.join();
+                result[0].addAll(right[0]);
+                result[1].addAll(right[1]);
+                return result;
+            }
+
+            LongList contained = new LongList();
+            LongList intersecting = new LongList();
+            for (int i = from; i < to; i++) {
+                long key = frontier.get(i);
+                int precision = LocationIdCodec.precision(key);
+                for (int chr = 0; chr < 32; chr++) {
+                    classify(region, child(key, precision, chr), contained, intersecting);
+                }
+            }
+            return new LongList[]{contained, intersecting};
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller makes the call, and the callers arriving
+ * while it is in flight share its result or failure instead of making their own. Nothing is cached once the call
+ * completes.
+ *
+ * @param <V> the type of the results.
+ */
+final class SingleFlight<V> {
+    private final ConcurrentHashMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    interface Call<V> {
+        V call() throws UnlCoreException;
+    }
+
+    /**
+     * Makes a blocking call, or waits for the call in flight for the same key.
+     */
+    V execute(@NotNull String key, @NotNull Call<V> call) throws UnlCoreException {
+        calls.increment();
+        CompletableFuture<V> placeholder = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, placeholder);
+        if (existing != null) {
+            collapsed.increment();
+            return await(existing);
+        }
+
+        try {
+            V value = call.call();
+            inFlight.remove(key, placeholder);
+            placeholder.complete(value);
+            return value;
+        } catch (Throwable t) {
+            inFlight.remove(key, placeholder);
+            placeholder.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * Starts an asynchronous call, or joins the call in flight for the same key. Each caller gets its own dependent
+     * future, so completing or cancelling it does not affect the other callers.
+     */
+    @NotNull
+    CompletableFuture<V> executeAsync(@NotNull String key, @NotNull Supplier<CompletableFuture<V>> call) {
+        calls.increment();
+        CompletableFuture<V> placeholder = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, placeholder);
+        if (existing != null) {
+            collapsed.increment();
+            return existing.thenApply(value -> value);
+        }
+
+        try {
+            call.get().whenComplete((value, error) -> {
+                inFlight.remove(key, placeholder);
+                if (error != null) {
+                    placeholder.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                } else {
+                    placeholder.complete(value);
+                }
+            });
+        } catch (Throwable t) {
+            inFlight.remove(key, placeholder);
+            placeholder.completeExceptionally(t);
+        }
+        return placeholder.thenApply(value -> value);
+    }
+
+    /**
+     * Returns the number of calls requested, including the collapsed ones.
+     */
+    long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Returns the number of calls that shared the result of a call in flight instead of being made.
+     */
+    long getCollapsed() {
+        return collapsed.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws UnlCoreException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnlCoreException("Interrupted while waiting for the location endpoint", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            int status = cause instanceof UnlCoreException ? ((UnlCoreException) cause).getStatus() : UnlCoreException.NO_STATUS;
+            throw new UnlCoreException(cause.getMessage(), cause, status);
+        }
+    }
+}
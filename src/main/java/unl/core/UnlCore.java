@@ -2,26 +2,51 @@ package unl.core;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 public final class UnlCore {
     public final static int DEFAULT_PRECISION = 9;
     public final static Elevation DEFAULT_ELEVATION = new Elevation(0, "floor");
-    private final static String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
-    private final static String LOCATION_ID_REGEX = "^[0123456789bcdefghjkmnpqrstuvwxyz]{3,16}[@#]?[0-9]{0,3}$";
-    private final static String COORDINATES_REGEX = "^-?[0-9]{0,2}\\.?[0-9]{0,16},\\s?-?[0-9]{0,3}\\.?[0-9]{0,16}$";
+    public final static int MAX_KEY_PRECISION = LocationIdCodec.MAX_PRECISION;
+    private final static String BASE32 = LocationIdCodec.BASE32;
 
-    private final static String BASE_URL = "https://map.unl.global/api/v1/location/";
+    final static String BASE_URL = "https://map.unl.global/api/v1/location/";
     private final static String WORDS_ENDPOINT = "words/";
     private final static String GEOHASH_ENDPOINT = "geohash/";
     private final static String COORDINATES_ENDPOINT = "coordinates/";
 
+    private final static SingleFlight<Location> LOOKUPS = new SingleFlight<>();
+    private final static LocationTypeAdapter LOCATION_ADAPTER = new LocationTypeAdapter();
+    private final static Gson GSON = new GsonBuilder().registerTypeAdapter(Location.class, LOCATION_ADAPTER).create();
+
+    private static volatile UnlCoreListener listener = UnlCoreListener.NOOP;
+    private static volatile CallPolicy callPolicy = new CallPolicy(0, 0);
+
     private UnlCore() {
     }
 
@@ -39,10 +64,140 @@ public final class UnlCore {
      */
     @NotNull
     public static String encode(double lat, double lon, int precision, @NotNull Elevation elevation) {
+        listener.onEncode();
+        return encodeLocationId(lat, lon, precision, elevation);
+    }
+
+    @NotNull
+    private static String encodeLocationId(double lat, double lon, int precision, @NotNull Elevation elevation) {
         if (Double.isNaN(lat) || Double.isNaN(lon) || Double.isNaN(precision)) {
             throw new IllegalArgumentException("Invalid coordinates or precision");
         }
 
+        String locationId;
+        if (precision >= 1 && precision <= LocationIdCodec.MAX_PRECISION) {
+            locationId = LocationIdCodec.toLocationId(LocationIdCodec.encode(lat, lon, precision));
+        } else {
+            locationId = bisect(lat, lon, precision);
+        }
+
+        return appendElevation(locationId, elevation);
+    }
+
+    /**
+     * Encodes latitude/longitude coordinates to locationId, like encode, writing the ASCII chars of the locationId and
+     * its elevation suffix into a byte array instead of creating a String.
+     *
+     * @param lat       the latitude in degrees.
+     * @param lon       the longitude in degrees.
+     * @param precision the number of characters in resulting locationId.
+     * @param elevation the elevation object, containing the elevation number and type: 'floor' | 'heightincm'.
+     * @param dst       the array to write the locationId into.
+     * @param off       the index of the first byte to write.
+     * @return the number of bytes written.
+     * @throws IllegalArgumentException  if the coordinates are invalid.
+     * @throws IndexOutOfBoundsException if the locationId does not fit in the array from off.
+     * @example int length = UnlCore.encodeInto(52.205, 0.119, 7, new Elevation(9, "floor"), bytes, 0); // => 9, bytes start with 'u120fxw@9'
+     */
+    public static int encodeInto(double lat, double lon, int precision, @NotNull Elevation elevation, @NotNull byte[] dst, int off) {
+        listener.onEncode();
+        int length = encodedLength(lat, lon, precision, elevation);
+        if (off < 0 || off > dst.length - length) {
+            throw new IndexOutOfBoundsException("Destination array too small");
+        }
+        writeLocationId(lat, lon, precision, elevation, dst, off, length);
+        return length;
+    }
+
+    /**
+     * Encodes latitude/longitude coordinates to locationId, like encode, writing the ASCII chars of the locationId and
+     * its elevation suffix into a buffer at its position, and advancing the position past them.
+     *
+     * @param lat       the latitude in degrees.
+     * @param lon       the longitude in degrees.
+     * @param precision the number of characters in resulting locationId.
+     * @param elevation the elevation object, containing the elevation number and type: 'floor' | 'heightincm'.
+     * @param dst       the buffer to write the locationId into.
+     * @return the number of bytes written.
+     * @throws IllegalArgumentException if the coordinates are invalid.
+     * @throws BufferOverflowException  if the locationId does not fit in the remaining bytes of the buffer.
+     */
+    public static int encodeInto(double lat, double lon, int precision, @NotNull Elevation elevation, @NotNull ByteBuffer dst) {
+        listener.onEncode();
+        int length = encodedLength(lat, lon, precision, elevation);
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        writeLocationId(lat, lon, precision, elevation, dst, dst.position(), length);
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * Returns the number of chars of an encoded locationId with its elevation suffix.
+     */
+    private static int encodedLength(double lat, double lon, int precision, @NotNull Elevation elevation) {
+        if (Double.isNaN(lat) || Double.isNaN(lon)) {
+            throw new IllegalArgumentException("Invalid coordinates or precision");
+        }
+
+        int length = Math.max(precision, 0);
+        long elevationNumber = elevation.getElevation();
+        if (elevationNumber != 0) {
+            // the elevation char, the sign and the digits
+            length += elevationNumber < 0 ? 2 : 1;
+            for (long remaining = Math.abs(elevationNumber); remaining > 0; remaining /= 10) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes length ASCII chars of a locationId and its elevation suffix from index off of a byte array or buffer.
+     */
+    private static void writeLocationId(double lat, double lon, int precision, @NotNull Elevation elevation, @NotNull Object dst, int off, int length) {
+        if (precision >= 1 && precision <= LocationIdCodec.MAX_PRECISION) {
+            long hashBits = LocationIdCodec.hashBits(LocationIdCodec.encode(lat, lon, precision), precision);
+            for (int i = precision - 1; i >= 0; i--) {
+                put(dst, off + i, BASE32.charAt((int) (hashBits & 31)));
+                hashBits >>>= 5;
+            }
+        } else if (precision > LocationIdCodec.MAX_PRECISION) {
+            String locationId = bisect(lat, lon, precision);
+            for (int i = 0; i < precision; i++) {
+                put(dst, off + i, locationId.charAt(i));
+            }
+        }
+
+        long elevationNumber = elevation.getElevation();
+        if (elevationNumber == 0) {
+            return;
+        }
+        int i = off + length - 1;
+        for (long remaining = Math.abs(elevationNumber); remaining > 0; remaining /= 10) {
+            put(dst, i--, (char) ('0' + remaining % 10));
+        }
+        if (elevationNumber < 0) {
+            put(dst, i--, '-');
+        }
+        put(dst, i, elevationChar(elevation));
+    }
+
+    private static void put(@NotNull Object dst, int index, char chr) {
+        if (dst instanceof byte[]) {
+            ((byte[]) dst)[index] = (byte) chr;
+        } else {
+            ((ByteBuffer) dst).put(index, (byte) chr);
+        }
+    }
+
+    /**
+     * Encodes latitude/longitude coordinates by bisecting the latitude/longitude ranges once per bit.
+     * Used for precisions that do not fit in a locationId key.
+     */
+    @NotNull
+    private static String bisect(double lat, double lon, int precision) {
         int idx = 0;
         int bit = 0;
         boolean evenBit = true;
@@ -86,14 +241,7 @@ public final class UnlCore {
             }
         }
 
-        int elevationNumber = elevation.getElevation();
-        String elevationType = elevation.getElevationType();
-        Elevation elevationObject = new Elevation(elevationNumber, elevationType);
-
-        return appendElevation(
-                locationId.toString(),
-                elevationObject
-        );
+        return locationId.toString();
     }
 
     /**
@@ -125,14 +273,15 @@ public final class UnlCore {
     @NotNull
     public static String encode(double lat, double lon, @NotNull Elevation elevation) {
         // refine locationId until it matches precision of supplied lat/lon
+        listener.onEncode();
         for (int p = 1; p <= DEFAULT_PRECISION; p++) {
-            String hash = encode(lat, lon, p);
-            PointWithElevation posn = decode(hash);
+            String hash = encodeLocationId(lat, lon, p, DEFAULT_ELEVATION);
+            PointWithElevation posn = decodeLocationId(hash);
             if (posn.getCoordinates().getLat() == lat && posn.getCoordinates().getLon() == lon)
                 return hash;
         }
 
-        return encode(lat, lon, DEFAULT_PRECISION, elevation);
+        return encodeLocationId(lat, lon, DEFAULT_PRECISION, elevation);
     }
 
     /**
@@ -162,8 +311,27 @@ public final class UnlCore {
      */
     @NotNull
     public static PointWithElevation decode(@NotNull String locationId) {
+        listener.onDecode();
+        return decodeLocationId(locationId);
+    }
+
+    @NotNull
+    private static PointWithElevation decodeLocationId(@NotNull String locationId) {
         LocationIdWithElevation locationIdWithElevation = excludeElevation(locationId);
-        Bounds bounds = bounds(locationIdWithElevation.getLocationId());
+        String locationIdWithoutElevation = locationIdWithElevation.getLocationId();
+        int precision = locationIdWithoutElevation.length();
+
+        if (precision >= 1 && precision <= LocationIdCodec.MAX_PRECISION) {
+            long key = LocationIdCodec.fromLocationId(locationIdWithoutElevation);
+            long hashBits = LocationIdCodec.hashBits(key, precision);
+            Point point = new Point(
+                    LocationIdCodec.latCentre(LocationIdCodec.latIndex(hashBits, precision), precision),
+                    LocationIdCodec.lonCentre(LocationIdCodec.lonIndex(hashBits, precision), precision)
+            );
+            return new PointWithElevation(point, locationIdWithElevation.getElevation(), LocationIdCodec.bounds(key));
+        }
+
+        Bounds bounds = bounds(locationIdWithoutElevation);
 
         double latMin = bounds.getS(), lonMin = bounds.getW();
         double latMax = bounds.getN(), lonMax = bounds.getE();
@@ -180,6 +348,110 @@ public final class UnlCore {
         return new PointWithElevation(point, locationIdWithElevation.getElevation(), bounds);
     }
 
+    /**
+     * Decode locationId to latitude/longitude, elevation and bounds, like decode, into a reusable MutableCell
+     * instead of allocating new objects.
+     *
+     * @param locationId the locationId to be converted to latitude/longitude.
+     * @param cell       the cell to fill with the centre, elevation info and n, e, s, w bounds of the locationId.
+     * @return the cell that was passed in.
+     * @throws IllegalArgumentException if the locationId is invalid.
+     * @example MutableCell cell = UnlCore.decodeInto("u4pruy@3", new MutableCell()); // => cell.getLat() == 57.648, cell.getElevation() == 3
+     */
+    @NotNull
+    public static MutableCell decodeInto(@NotNull CharSequence locationId, @NotNull MutableCell cell) {
+        listener.onDecode();
+        long parsed = LocationIdParser.parse(locationId);
+        if (parsed == LocationIdParser.INVALID) {
+            throw new IllegalArgumentException("Invalid locationId");
+        }
+        int separator = LocationIdParser.geohashLength(parsed);
+        if (separator > LocationIdCodec.MAX_PRECISION) {
+            PointWithElevation pointWithElevation = decodeLocationId(locationId.toString());
+            Bounds bounds = pointWithElevation.getBounds();
+            cell.set(
+                    pointWithElevation.getCoordinates().getLat(),
+                    pointWithElevation.getCoordinates().getLon(),
+                    pointWithElevation.getElevation().getElevation(),
+                    pointWithElevation.getElevation().getElevationType(),
+                    bounds.getN(), bounds.getE(), bounds.getS(), bounds.getW()
+            );
+            return cell;
+        }
+
+        int elevation = LocationIdParser.elevation(parsed);
+        String elevationType = LocationIdParser.elevationType(parsed);
+
+        long key = LocationIdCodec.fromLocationId(locationId, 0, separator);
+        long hashBits = LocationIdCodec.hashBits(key, separator);
+        int latIdx = LocationIdCodec.latIndex(hashBits, separator);
+        int lonIdx = LocationIdCodec.lonIndex(hashBits, separator);
+        double latStep = LocationIdCodec.cellHeight(separator);
+        double lonStep = LocationIdCodec.cellWidth(separator);
+
+        cell.set(
+                LocationIdCodec.latCentre(latIdx, separator),
+                LocationIdCodec.lonCentre(lonIdx, separator),
+                elevation,
+                elevationType,
+                -90 + (latIdx + 1) * latStep,
+                -180 + (lonIdx + 1) * lonStep,
+                -90 + latIdx * latStep,
+                -180 + lonIdx * lonStep
+        );
+        return cell;
+    }
+
+    /**
+     * Decode locationId to latitude/longitude and bounds, like decode, into a caller-supplied array.
+     * The elevation chars are validated but not returned.
+     *
+     * @param locationId the locationId to be converted to latitude/longitude.
+     * @param dst        the array to fill with lat, lon, n, e, s, w, starting at index 0.
+     * @return the array that was passed in.
+     * @throws IllegalArgumentException  if the locationId is invalid.
+     * @throws IndexOutOfBoundsException if the array has less than 6 elements.
+     */
+    @NotNull
+    public static double[] decodeInto(@NotNull CharSequence locationId, @NotNull double[] dst) {
+        listener.onDecode();
+        if (dst.length < 6) {
+            throw new IndexOutOfBoundsException("Destination array must hold 6 values");
+        }
+
+        long parsed = LocationIdParser.parse(locationId);
+        if (parsed == LocationIdParser.INVALID) {
+            throw new IllegalArgumentException("Invalid locationId");
+        }
+        int separator = LocationIdParser.geohashLength(parsed);
+        if (separator > LocationIdCodec.MAX_PRECISION) {
+            PointWithElevation pointWithElevation = decodeLocationId(locationId.toString());
+            Bounds bounds = pointWithElevation.getBounds();
+            dst[0] = pointWithElevation.getCoordinates().getLat();
+            dst[1] = pointWithElevation.getCoordinates().getLon();
+            dst[2] = bounds.getN();
+            dst[3] = bounds.getE();
+            dst[4] = bounds.getS();
+            dst[5] = bounds.getW();
+            return dst;
+        }
+
+        long key = LocationIdCodec.fromLocationId(locationId, 0, separator);
+        long hashBits = LocationIdCodec.hashBits(key, separator);
+        int latIdx = LocationIdCodec.latIndex(hashBits, separator);
+        int lonIdx = LocationIdCodec.lonIndex(hashBits, separator);
+        double latStep = LocationIdCodec.cellHeight(separator);
+        double lonStep = LocationIdCodec.cellWidth(separator);
+
+        dst[0] = LocationIdCodec.latCentre(latIdx, separator);
+        dst[1] = LocationIdCodec.lonCentre(lonIdx, separator);
+        dst[2] = -90 + (latIdx + 1) * latStep;
+        dst[3] = -180 + (lonIdx + 1) * lonStep;
+        dst[4] = -90 + latIdx * latStep;
+        dst[5] = -180 + lonIdx * lonStep;
+        return dst;
+    }
+
     /**
      * Adds elevation chars and elevation.
      * It is mainly used by internal functions.
@@ -199,12 +471,14 @@ public final class UnlCore {
             return locationIdWithoutElevation;
         }
 
-        char elevationChar = '@';
-        if (elevation.getElevationType() == "heightincm") {
-            elevationChar = '#';
-        }
+        return locationIdWithoutElevation + elevationChar(elevation) + elevation.getElevation();
+    }
 
-        return locationIdWithoutElevation + elevationChar + elevation.getElevation();
+    /**
+     * Returns the char separating a locationId from its elevation: '#' for a height in centimetres, '@' otherwise.
+     */
+    private static char elevationChar(@NotNull Elevation elevation) {
+        return "heightincm".equals(elevation.getElevationType()) ? '#' : '@';
     }
 
     /**
@@ -217,30 +491,17 @@ public final class UnlCore {
      */
     @NotNull
     public static LocationIdWithElevation excludeElevation(@NotNull String locationIdWithElevation) {
-        if (locationIdWithElevation.length() == 0) {
+        long parsed = LocationIdParser.parse(locationIdWithElevation);
+        if (parsed == LocationIdParser.INVALID) {
             throw new IllegalArgumentException("Invalid locationId");
         }
 
-        if (locationIdWithElevation.contains("#") && locationIdWithElevation.contains("@")) {
-            throw new IllegalArgumentException("Invalid locationId");
-        }
-
-        String locationIdWithoutElevation = locationIdWithElevation.toLowerCase();
-        String elevationType = "floor";
-        int elevation = 0;
-
-        if (locationIdWithElevation.contains("#")) {
-            locationIdWithoutElevation = locationIdWithElevation.split("#")[0];
-            elevation = Integer.parseInt(locationIdWithElevation.split("#")[1]);
-            elevationType = "heightincm";
-        }
-
-        if (locationIdWithElevation.contains("@")) {
-            locationIdWithoutElevation = locationIdWithElevation.split("@")[0];
-            elevation = Integer.parseInt(locationIdWithElevation.split("@")[1]);
-        }
-
-        Elevation excludedElevation = new Elevation(elevation, elevationType);
+        int geohashLength = LocationIdParser.geohashLength(parsed);
+        // ids without elevation chars are lowercased, the others are kept as they are
+        String locationIdWithoutElevation = geohashLength == locationIdWithElevation.length()
+                ? locationIdWithElevation.toLowerCase()
+                : locationIdWithElevation.substring(0, geohashLength);
+        Elevation excludedElevation = new Elevation(LocationIdParser.elevation(parsed), LocationIdParser.elevationType(parsed));
         return new LocationIdWithElevation(locationIdWithoutElevation, excludedElevation);
     }
 
@@ -256,13 +517,17 @@ public final class UnlCore {
         LocationIdWithElevation locationIdWithElevation = excludeElevation(locationId);
         String locationIdWithoutElevation = locationIdWithElevation.getLocationId();
 
+        if (locationIdWithoutElevation.length() >= 1 && locationIdWithoutElevation.length() <= LocationIdCodec.MAX_PRECISION) {
+            return LocationIdCodec.bounds(LocationIdCodec.fromLocationId(locationIdWithoutElevation));
+        }
+
         boolean evenBit = true;
         double latMin = -90, latMax = 90;
         double lonMin = -180, lonMax = 180;
 
         for (int i = 0; i < locationIdWithoutElevation.length(); i++) {
             char chr = locationIdWithoutElevation.charAt(i);
-            int idx = BASE32.indexOf(chr);
+            int idx = LocationIdCodec.decodeChar(chr);
 
             if (idx == -1) throw new IllegalArgumentException("Invalid locationId");
 
@@ -373,6 +638,8 @@ public final class UnlCore {
 
     /**
      * Returns all 8 adjacent cells to specified locationId.
+     * Longitudes wrap around the antimeridian and latitudes are clamped at the poles: on the northernmost row of cells,
+     * the n neighbour is the cell itself (and likewise for the s neighbour on the southernmost row).
      *
      * @param locationId the locationId neighbours are required of.
      * @return an instance of Neighbour class containing the 8 adjacent cells of the specified locationId: n, ne, e, se, s, sw, w, nw.
@@ -380,6 +647,25 @@ public final class UnlCore {
      */
     @NotNull
     public static Neighbours neighbours(@NotNull String locationId) {
+        LocationIdWithElevation locationIdWithElevation = excludeElevation(locationId);
+        String locationIdWithoutElevation = locationIdWithElevation.getLocationId();
+        int precision = locationIdWithoutElevation.length();
+
+        if (precision >= 1 && precision <= LocationIdCodec.MAX_PRECISION) {
+            long[] keys = neighbours(LocationIdCodec.fromLocationId(locationIdWithoutElevation));
+            Elevation elevation = locationIdWithElevation.getElevation();
+            return new Neighbours(
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.N]), elevation),
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.NE]), elevation),
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.E]), elevation),
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.SE]), elevation),
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.S]), elevation),
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.SW]), elevation),
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.W]), elevation),
+                    appendElevation(LocationIdCodec.toLocationId(keys[Neighbours.NW]), elevation)
+            );
+        }
+
         return new Neighbours(
                 adjacent(locationId, "n"),
                 adjacent(adjacent(locationId, "n"), "e"),
@@ -392,6 +678,104 @@ public final class UnlCore {
         );
     }
 
+    /**
+     * Returns the keys of all 8 adjacent cells to specified locationId key, computed in a single pass.
+     * Longitudes wrap around the antimeridian and latitudes are clamped at the poles.
+     *
+     * @param key the locationId key neighbours are required of.
+     * @return a new array with the 8 adjacent cell keys, indexed by Neighbours.N, NE, E, SE, S, SW, W and NW.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    @NotNull
+    public static long[] neighbours(long key) {
+        return neighbours(key, new long[8]);
+    }
+
+    /**
+     * Writes the keys of all 8 adjacent cells to specified locationId key into a reusable array.
+     * Longitudes wrap around the antimeridian and latitudes are clamped at the poles.
+     *
+     * @param key the locationId key neighbours are required of.
+     * @param dst the array to fill, indexed by Neighbours.N, NE, E, SE, S, SW, W and NW.
+     * @return the array that was passed in.
+     * @throws IllegalArgumentException  if the key is invalid.
+     * @throws IndexOutOfBoundsException if the array has less than 8 elements.
+     */
+    @NotNull
+    public static long[] neighbours(long key, @NotNull long[] dst) {
+        if (dst.length < 8) {
+            throw new IndexOutOfBoundsException("Destination array must hold 8 keys");
+        }
+        LocationIdCodec.neighbours(key, dst);
+        return dst;
+    }
+
+    /**
+     * Returns the keys of the cells at exactly k cells distance from specified locationId key, lazily.
+     * The distance is the larger of the latitude row and longitude column differences; columns are counted
+     * around the antimeridian and rows beyond the poles are left out, so no cell is returned twice.
+     *
+     * @param key the locationId key of the centre cell.
+     * @param k   the distance of the ring, in cells: 0 returns the centre cell only.
+     * @return a stream of the cell keys of the ring, from south to north.
+     * @throws IllegalArgumentException if the key is invalid or k is negative.
+     */
+    @NotNull
+    public static LongStream ring(long key, int k) {
+        return cellStream(key, k, k);
+    }
+
+    /**
+     * Returns the keys of the cells of the ring at exactly k cells distance from specified locationId.
+     *
+     * @param locationId the locationId of the centre cell, without elevation chars.
+     * @param k          the distance of the ring, in cells: 0 returns the centre cell only.
+     * @return a stream of the cell keys of the ring, from south to north.
+     * @throws IllegalArgumentException if the locationId is invalid or k is negative.
+     * @see #ring(long, int)
+     */
+    @NotNull
+    public static LongStream ring(@NotNull CharSequence locationId, int k) {
+        return ring(LocationIdCodec.fromLocationId(locationId), k);
+    }
+
+    /**
+     * Returns the keys of all cells within k cells distance from specified locationId key, lazily and
+     * ring by ring, starting with the centre cell. No cell is returned twice.
+     *
+     * @param key the locationId key of the centre cell.
+     * @param k   the maximum distance, in cells.
+     * @return a stream of the cell keys of rings 0 to k.
+     * @throws IllegalArgumentException if the key is invalid or k is negative.
+     * @see #ring(long, int)
+     */
+    @NotNull
+    public static LongStream disk(long key, int k) {
+        return cellStream(key, 0, k);
+    }
+
+    /**
+     * Returns the keys of all cells within k cells distance from specified locationId, ring by ring.
+     *
+     * @param locationId the locationId of the centre cell, without elevation chars.
+     * @param k          the maximum distance, in cells.
+     * @return a stream of the cell keys of rings 0 to k.
+     * @throws IllegalArgumentException if the locationId is invalid or k is negative.
+     * @see #disk(long, int)
+     */
+    @NotNull
+    public static LongStream disk(@NotNull CharSequence locationId, int k) {
+        return disk(LocationIdCodec.fromLocationId(locationId), k);
+    }
+
+    @NotNull
+    private static LongStream cellStream(long key, int firstRing, int lastRing) {
+        CellRingIterator iterator = new CellRingIterator(key, firstRing, lastRing);
+        long size = CellRingIterator.size(key, firstRing, lastRing);
+        return StreamSupport.longStream(Spliterators.spliterator(iterator, size,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
     /**
      * Returns the vertical and horizontal lines that can be used to draw a UNL grid in the specified
      * n, w, s, e  bounds and precision. Each line is represented by an array of two
@@ -405,6 +789,12 @@ public final class UnlCore {
     public static List<double[][]> gridLines(@NotNull Bounds bounds, int precision) {
         List<double[][]> lines = new ArrayList<>();
 
+        if (precision >= 1 && precision <= LocationIdCodec.MAX_PRECISION) {
+            new GridLines(bounds, precision).forEach((startLon, startLat, endLon, endLat) ->
+                    lines.add(new double[][]{{startLon, startLat}, {endLon, endLat}}));
+            return lines;
+        }
+
         double lonMin = bounds.getW();
         double lonMax = bounds.getE();
 
@@ -412,7 +802,7 @@ public final class UnlCore {
         double latMax = bounds.getN();
 
 
-        String swCellLocationId = encode(
+        String swCellLocationId = encodeLocationId(
                 bounds.getS(),
                 bounds.getW(),
                 precision,
@@ -462,6 +852,314 @@ public final class UnlCore {
         return gridLines(bounds, DEFAULT_PRECISION);
     }
 
+    /**
+     * Passes the vertical and horizontal lines of the UNL grid in the specified n, e, s, w bounds and precision to a
+     * consumer, one by one. The lines are the same as those of {@link #gridLines(Bounds, int)}, computed from the
+     * cell size rather than by walking the grid, and nothing is allocated per line.
+     *
+     * @param bounds    the bound within to return the grid lines.
+     * @param precision the number of characters to consider for the locationId of a grid cell, from 1 to
+     *                  MAX_KEY_PRECISION.
+     * @param consumer  the consumer of the lines: horizontal lines from south to north, then vertical lines from
+     *                  west to east.
+     * @throws IllegalArgumentException if the bounds or precision are invalid.
+     */
+    public static void gridLines(@NotNull Bounds bounds, int precision, @NotNull GridLineConsumer consumer) {
+        new GridLines(bounds, precision).forEach(consumer);
+    }
+
+    /**
+     * Passes the grid lines in the specified bounds to a consumer, at the finest precision up to maxPrecision whose
+     * grid has at most maxLines lines in the bounds.
+     *
+     * @param bounds       the bound within to return the grid lines.
+     * @param maxPrecision the finest precision to draw the grid at, from 1 to MAX_KEY_PRECISION.
+     * @param maxLines     the maximum number of lines.
+     * @param consumer     the consumer of the lines.
+     * @return the precision of the grid passed to the consumer.
+     * @throws IllegalArgumentException if the bounds or precision are invalid, or if even the grid of precision 1
+     *                                  has more than maxLines lines.
+     * @example UnlCore.gridLines(bounds, 12, 500, consumer); // => 11 for bounds where precision 12 needs 1481 lines
+     */
+    public static int gridLines(@NotNull Bounds bounds, int maxPrecision, int maxLines, @NotNull GridLineConsumer consumer) {
+        LocationIdCodec.checkPrecision(maxPrecision);
+        for (int precision = maxPrecision; precision >= 1; precision--) {
+            GridLines lines = new GridLines(bounds, precision);
+            if (lines.count() <= maxLines) {
+                lines.forEach(consumer);
+                return precision;
+            }
+        }
+        throw new IllegalArgumentException("Too many grid lines");
+    }
+
+    /**
+     * Writes the grid lines in the specified bounds and precision to a buffer, as four doubles per line:
+     * startLon, startLat, endLon, endLat. Nothing is written if the buffer does not have room for all lines.
+     *
+     * @param bounds    the bound within to return the grid lines.
+     * @param precision the number of characters to consider for the locationId of a grid cell, from 1 to
+     *                  MAX_KEY_PRECISION.
+     * @param dst       the buffer to write the lines to, from its position.
+     * @return the number of lines written.
+     * @throws IllegalArgumentException if the bounds or precision are invalid, or if the lines do not fit in dst.
+     */
+    public static int gridLines(@NotNull Bounds bounds, int precision, @NotNull DoubleBuffer dst) {
+        GridLines lines = new GridLines(bounds, precision);
+        long count = lines.count();
+        if (4 * count > dst.remaining()) {
+            throw new IllegalArgumentException("Too many grid lines");
+        }
+        lines.forEach((startLon, startLat, endLon, endLat) -> dst.put(startLon).put(startLat).put(endLon).put(endLat));
+        return (int) count;
+    }
+
+    /**
+     * Writes the grid lines in the specified bounds and precision to an array, as four doubles per line:
+     * startLon, startLat, endLon, endLat. Nothing is written if the array does not have room for all lines.
+     *
+     * @param bounds    the bound within to return the grid lines.
+     * @param precision the number of characters to consider for the locationId of a grid cell, from 1 to
+     *                  MAX_KEY_PRECISION.
+     * @param dst       the array to write the lines to, from its start.
+     * @return the number of lines written.
+     * @throws IllegalArgumentException if the bounds or precision are invalid, or if the lines do not fit in dst.
+     */
+    public static int gridLines(@NotNull Bounds bounds, int precision, @NotNull double[] dst) {
+        return gridLines(bounds, precision, DoubleBuffer.wrap(dst));
+    }
+
+    /**
+     * Returns the number of grid lines in the specified bounds and precision, without computing them, so callers can
+     * size buffers or pick a precision.
+     *
+     * @param bounds    the bound within to count the grid lines.
+     * @param precision the number of characters to consider for the locationId of a grid cell, from 1 to
+     *                  MAX_KEY_PRECISION.
+     * @return the number of grid lines.
+     * @throws IllegalArgumentException if the bounds or precision are invalid.
+     */
+    public static long gridLineCount(@NotNull Bounds bounds, int precision) {
+        return new GridLines(bounds, precision).count();
+    }
+
+    /**
+     * Returns the keys of the cells of the specified precision whose centre lies inside a polygon. Cells are
+     * subdivided from coarse to fine on the common ForkJoinPool, and a cell that no polygon edge crosses is resolved
+     * with a single point-in-polygon test for all of its descendants. The polygon must not cross the antimeridian.
+     *
+     * @param polygon   the rings of the polygon in GeoJSON order: the outline first, then its holes. Each ring is an
+     *                  array of [lon, lat] coordinates and does not need to repeat its first coordinate.
+     * @param precision the precision of the cells, from 1 to MAX_KEY_PRECISION.
+     * @return the sorted keys of the cells whose centre is inside the polygon.
+     * @throws IllegalArgumentException if the polygon or precision are invalid.
+     * @example UnlCore.polyfill(new double[][][]{{{4.89, 52.37}, {4.91, 52.37}, {4.91, 52.38}, {4.89, 52.38}}}, 9);
+     */
+    @NotNull
+    public static long[] polyfill(@NotNull double[][][] polygon, int precision) {
+        return new PolygonFiller(polygon).fill(precision, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the keys of the cells of the specified precision whose centre lies inside a polygon without holes.
+     *
+     * @param ring      the outline of the polygon, an array of [lon, lat] coordinates.
+     * @param precision the precision of the cells, from 1 to MAX_KEY_PRECISION.
+     * @return the sorted keys of the cells whose centre is inside the polygon.
+     * @throws IllegalArgumentException if the polygon or precision are invalid.
+     */
+    @NotNull
+    public static long[] polyfill(@NotNull double[][] ring, int precision) {
+        return polyfill(new double[][][]{ring}, precision);
+    }
+
+    /**
+     * Streams the keys of the cells of the specified precision whose centre lies inside a polygon to a consumer,
+     * without collecting them, so polygons covering millions of cells can be filled in constant memory. The
+     * consumer is called concurrently from the threads of the pool, in no particular order, and must be thread-safe.
+     *
+     * @param polygon   the rings of the polygon in GeoJSON order: the outline first, then its holes.
+     * @param precision the precision of the cells, from 1 to MAX_KEY_PRECISION.
+     * @param pool      the pool to fill the polygon on.
+     * @param consumer  the thread-safe consumer of the keys.
+     * @throws IllegalArgumentException if the polygon or precision are invalid.
+     */
+    public static void polyfill(@NotNull double[][][] polygon, int precision, @NotNull ForkJoinPool pool, @NotNull LongConsumer consumer) {
+        new PolygonFiller(polygon).fill(precision, pool, consumer);
+    }
+
+    /**
+     * Encodes latitude/longitude coordinates to a locationId key, to specified precision.
+     * The key is a primitive long holding the interleaved latitude/longitude bits and the precision,
+     * so cells can be stored and compared without creating strings.
+     *
+     * @param lat       the latitude in degrees.
+     * @param lon       the longitude in degrees.
+     * @param precision the number of characters in the equivalent locationId, from 1 to MAX_KEY_PRECISION.
+     * @return the locationId key of supplied latitude/longitude.
+     * @throws IllegalArgumentException if the coordinates or precision are invalid.
+     * @example long key = UnlCore.encodeToLong(57.648, 10.41, 6); UnlCore.toLocationId(key); // => 'u4pruy'
+     */
+    public static long encodeToLong(double lat, double lon, int precision) {
+        return LocationIdCodec.encode(lat, lon, precision);
+    }
+
+    /**
+     * Returns n, e, s, w bounds of specified locationId key cell.
+     *
+     * @param key the locationId key of the cell that bounds are required of.
+     * @return an instance of Bounds, containing the n, e, s, w bounds of specified cell.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    @NotNull
+    public static Bounds boundsOf(long key) {
+        return LocationIdCodec.bounds(key);
+    }
+
+    /**
+     * Returns the precision (number of locationId characters) of specified locationId key.
+     *
+     * @param key the locationId key.
+     * @return the precision of the key, from 1 to MAX_KEY_PRECISION.
+     * @throws IllegalArgumentException if the key is invalid.
+     */
+    public static int precisionOf(long key) {
+        return LocationIdCodec.precision(key);
+    }
+
+    /**
+     * Converts a locationId key to its locationId string.
+     *
+     * @param key the locationId key.
+     * @return the locationId, without elevation chars.
+     * @throws IllegalArgumentException if the key is invalid.
+     * @example UnlCore.toLocationId(UnlCore.fromLocationId("6gkzwgjz")); // => '6gkzwgjz'
+     */
+    @NotNull
+    public static String toLocationId(long key) {
+        return LocationIdCodec.toLocationId(key);
+    }
+
+    /**
+     * Converts a locationId to its locationId key. Only locationIds of up to MAX_KEY_PRECISION characters
+     * without elevation chars can be represented as keys.
+     *
+     * @param locationId the locationId, without elevation chars.
+     * @return the locationId key.
+     * @throws IllegalArgumentException if the locationId is invalid.
+     */
+    public static long fromLocationId(@NotNull CharSequence locationId) {
+        return LocationIdCodec.fromLocationId(locationId);
+    }
+
+    /**
+     * Returns the keys of the cells covering the specified n, e, s, w bounds, mixing precisions to use as few cells
+     * as possible: a cell is only split into its 32 children if it is not completely inside the bounds, and
+     * splitting stops at maxPrecision or when the covering would exceed maxCells cells. Bounds with w greater than e
+     * cross the antimeridian. Like cells, the bounds own their southern and western edges, but not their northern
+     * and eastern ones, so covering the bounds of a cell returns that cell.
+     *
+     * @param bounds       the bounds to cover.
+     * @param maxPrecision the precision of the finest cells, from 1 to MAX_KEY_PRECISION.
+     * @param maxCells     the maximum number of cells; it is only exceeded if more precision 1 cells are needed.
+     * @return the sorted keys of the covering cells.
+     * @throws IllegalArgumentException if the bounds, precision or maximum number of cells are invalid.
+     */
+    @NotNull
+    public static long[] cover(@NotNull Bounds bounds, int maxPrecision, int maxCells) {
+        return RegionCoverer.cover(new BoundsRegion(bounds), maxPrecision, maxCells);
+    }
+
+    /**
+     * Returns the keys of the cells of the specified precision that intersect a circle around a point. Cells are
+     * tested with great-circle distances on a spherical earth, against their corners and the points of their edges
+     * that are closest to or farthest from the centre, so only cells that really intersect the circle are returned.
+     *
+     * @param lat          the latitude of the centre in degrees.
+     * @param lon          the longitude of the centre in degrees.
+     * @param radiusMeters the radius of the circle in metres.
+     * @param precision    the precision of the cells, from 1 to MAX_KEY_PRECISION.
+     * @return the sorted keys of the cells intersecting the circle.
+     * @throws IllegalArgumentException if the coordinates, radius or precision are invalid.
+     * @example UnlCore.coverCircle(52.37686, 4.90065, 50, 9); // => the keys of the precision 9 cells within 50m
+     */
+    @NotNull
+    public static long[] coverCircle(double lat, double lon, double radiusMeters, int precision) {
+        return RegionCoverer.fill(new CircleRegion(lat, lon, radiusMeters), precision);
+    }
+
+    /**
+     * Compacts a set of cells: duplicates and cells inside other cells are dropped, and every complete group of 32
+     * sibling cells is replaced by their parent, repeatedly, so the result covers the same area with as few cells as
+     * possible.
+     *
+     * @param keys the locationId keys of the cells, of any precisions and in any order.
+     * @return the sorted keys of the compacted cells.
+     * @throws IllegalArgumentException if a key is invalid.
+     * @example UnlCore.compact(UnlCore.uncompact(new long[]{UnlCore.fromLocationId("u4pr")}, 6)); // => the key of 'u4pr'
+     */
+    @NotNull
+    public static long[] compact(@NotNull long[] keys) {
+        return CellUnion.compact(keys);
+    }
+
+    /**
+     * Compacts a set of locationIds: duplicates and cells inside other cells are dropped, and every complete group
+     * of 32 sibling cells is replaced by their parent, repeatedly.
+     *
+     * @param locationIds the locationIds, without elevation chars, of up to MAX_KEY_PRECISION characters.
+     * @return the compacted locationIds, in the order of their keys.
+     * @throws IllegalArgumentException if a locationId is invalid.
+     */
+    @NotNull
+    public static List<String> compact(@NotNull Collection<String> locationIds) {
+        return toLocationIds(CellUnion.compact(fromLocationIds(locationIds)));
+    }
+
+    /**
+     * Expands a set of cells to the cells of the specified precision covering the same area.
+     *
+     * @param keys      the locationId keys of the cells, of any precisions up to the specified one and in any order.
+     * @param precision the precision of the resulting cells, from 1 to MAX_KEY_PRECISION.
+     * @return the sorted keys of the cells of the specified precision.
+     * @throws IllegalArgumentException if a key is invalid or finer than the precision, or if the result would not
+     *                                  fit in an array.
+     */
+    @NotNull
+    public static long[] uncompact(@NotNull long[] keys, int precision) {
+        return CellUnion.uncompact(keys, precision);
+    }
+
+    /**
+     * Expands a set of locationIds to the locationIds of the specified precision covering the same area.
+     *
+     * @param locationIds the locationIds, without elevation chars, of up to the specified precision.
+     * @param precision   the precision of the resulting locationIds, from 1 to MAX_KEY_PRECISION.
+     * @return the locationIds of the specified precision, in the order of their keys.
+     * @throws IllegalArgumentException if a locationId is invalid or longer than the precision.
+     */
+    @NotNull
+    public static List<String> uncompact(@NotNull Collection<String> locationIds, int precision) {
+        return toLocationIds(CellUnion.uncompact(fromLocationIds(locationIds), precision));
+    }
+
+    private static long[] fromLocationIds(Collection<String> locationIds) {
+        long[] keys = new long[locationIds.size()];
+        int i = 0;
+        for (String locationId : locationIds) {
+            keys[i++] = LocationIdCodec.fromLocationId(locationId);
+        }
+        return keys;
+    }
+
+    private static List<String> toLocationIds(long[] keys) {
+        List<String> locationIds = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            locationIds.add(LocationIdCodec.toLocationId(key));
+        }
+        return locationIds;
+    }
+
     /**
      * Returns the location object, which encapsulates the coordinates, elevation, bounds, geohash and words,
      * corresponding to the location string (id or lat-lon coordinates). It requires the api key used to access
@@ -479,20 +1177,152 @@ public final class UnlCore {
             throw new IllegalArgumentException("API key not set");
         }
 
+        String path = toWordsPath(location);
+        return LOOKUPS.execute(apiKey + '\n' + lookupKey(path), () -> LocationService.callEndpoint(BASE_URL + path, apiKey, callPolicy, UnlCore::readLocation));
+    }
+
+    /**
+     * Returns the location object corresponding to the location string (id or lat-lon coordinates), from the cache
+     * if the cell of the location is cached, or from the location APIs otherwise, in which case the result is cached.
+     *
+     * @param location the location (Id or lat-lon coordinates) of the point for which you would like the address.
+     * @param apiKey   the UNL API key used to access the location APIs.
+     * @param cache    the cache of locations.
+     * @return an instance of Location class, containing the coordinates, elevation, bounds, geohash and words.
+     * @throws IllegalArgumentException if the api key string is empty or the location is invalid.
+     * @throws UnlCoreException         if the call to location endpoint is unsuccessful.
+     */
+    @Nullable
+    public static Location toWords(@NotNull String location, @NotNull String apiKey, @NotNull LocationCache cache) throws UnlCoreException {
+        if (apiKey.length() == 0) {
+            throw new IllegalArgumentException("API key not set");
+        }
+
+        Location cached = cachedLocation(cache, location);
+        if (cached != null) {
+            return cached;
+        }
+        Location result = toWords(location, apiKey);
+        if (result != null) {
+            cache.put(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the cached location of a location string, after checking that it is a locationId or coordinates.
+     */
+    @Nullable
+    static Location cachedLocation(@NotNull LocationCache cache, @NotNull String location) {
+        if (toWordsPath(location).startsWith(GEOHASH_ENDPOINT)) {
+            return cache.getByLocationId(location);
+        }
+        int comma = location.indexOf(',');
+        try {
+            return cache.get(Double.parseDouble(location.substring(0, comma).trim()), Double.parseDouble(location.substring(comma + 1).trim()));
+        } catch (NumberFormatException e) {
+            // coordinates the endpoint accepts but that are not numbers, such as "-,", bypass the cache
+            return null;
+        }
+    }
+
+    /**
+     * Returns the path of the location endpoint for a location string, relative to the base url.
+     *
+     * @throws IllegalArgumentException if the location is neither a locationId nor lat-lon coordinates.
+     */
+    @NotNull
+    static String toWordsPath(@NotNull String location) {
         String endpoint;
-        if (location.matches(LOCATION_ID_REGEX)) {
+        if (LocationIdParser.matchesLocationIdPattern(location)) {
             endpoint = GEOHASH_ENDPOINT;
-        } else if (location.matches(COORDINATES_REGEX)) {
+        } else if (LocationIdParser.matchesCoordinatesPattern(location)) {
             endpoint = COORDINATES_ENDPOINT;
         } else {
             throw new IllegalArgumentException("Could not interpret your input, " + location + ". Expected a locationId or lat, lon coordinates.");
         }
+        return endpoint + location;
+    }
 
-        String url = BASE_URL + endpoint + location;
-        String response = LocationService.callEndpoint(url, apiKey);
-        Gson gson = new GsonBuilder().registerTypeAdapter(Location.class, new LocationDeserializer()).create();
+    /**
+     * Returns the path of the words endpoint for a words string, relative to the base url.
+     */
+    @NotNull
+    static String wordsPath(@NotNull String words) {
+        return WORDS_ENDPOINT + words;
+    }
 
-        return gson.fromJson(response, Location.class);
+    /**
+     * Returns the key identifying identical lookups: the endpoint path without whitespace, so coordinates written
+     * with or without a space after the comma are the same lookup. A path without whitespace is its own key.
+     */
+    @NotNull
+    static String lookupKey(@NotNull String path) {
+        int length = path.length();
+        int i = 0;
+        while (i < length && !LocationIdParser.isWhitespace(path.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return path;
+        }
+
+        StringBuilder key = new StringBuilder(length - 1).append(path, 0, i);
+        for (i++; i < length; i++) {
+            char chr = path.charAt(i);
+            if (!LocationIdParser.isWhitespace(chr)) {
+                key.append(chr);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Parses a location response straight from the stream of the connection, reading it to its end.
+     */
+    @Nullable
+    static Location readLocation(@NotNull InputStream inputStream) throws IOException {
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        Location location = GSON.fromJson(reader, Location.class);
+        while (reader.read() != -1) {
+            // drain the whitespace left after the document
+        }
+        return location;
+    }
+
+    /**
+     * Reads a stream of locations in one pass, such as newline-delimited JSON with one location per line. Each
+     * location is either a response of the location APIs or a bare location object, and is passed to the consumer as
+     * soon as it is read.
+     *
+     * @param reader   the stream of locations.
+     * @param consumer the consumer of the locations, in the order they are read.
+     * @return the number of locations read.
+     * @throws IOException if the stream cannot be read.
+     * @throws com.google.gson.JsonParseException if the stream holds an invalid location.
+     */
+    public static long readLocations(@NotNull Reader reader, @NotNull Consumer<Location> consumer) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        // lenient reading accepts a sequence of top-level values
+        jsonReader.setLenient(true);
+        long count = 0;
+        while (hasNextValue(jsonReader)) {
+            Location location = LOCATION_ADAPTER.read(jsonReader);
+            if (location != null) {
+                consumer.accept(location);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean hasNextValue(@NotNull JsonReader jsonReader) throws IOException {
+        try {
+            return jsonReader.peek() != JsonToken.END_DOCUMENT;
+        } catch (EOFException e) {
+            // an empty stream ends before its first value
+            return false;
+        }
     }
 
     /**
@@ -512,10 +1342,96 @@ public final class UnlCore {
             throw new IllegalArgumentException("API key not set");
         }
 
-        String url = BASE_URL + WORDS_ENDPOINT + words;
-        String response = LocationService.callEndpoint(url, apiKey);
-        Gson gson = new GsonBuilder().registerTypeAdapter(Location.class, new LocationDeserializer()).create();
+        String path = wordsPath(words);
+        return LOOKUPS.execute(apiKey + '\n' + lookupKey(path), () -> LocationService.callEndpoint(BASE_URL + path, apiKey, callPolicy, UnlCore::readLocation));
+    }
+
+    /**
+     * Returns the location object corresponding to the words string, from the cache if a location with these words
+     * is cached, or from the location APIs otherwise, in which case the result is cached.
+     *
+     * @param words  the words representing the point for which you would like the coordinates.
+     * @param apiKey the UNL API key used to access the location APIs.
+     * @param cache  the cache of locations.
+     * @return an instance of Location class, containing the coordinates, elevation, bounds, geohash and words.
+     * @throws IllegalArgumentException if the api key string is empty.
+     * @throws UnlCoreException         if the call to location APIs is unsuccessful.
+     */
+    @Nullable
+    public static Location words(@NotNull String words, @Nullable String apiKey, @NotNull LocationCache cache) throws UnlCoreException {
+        if (apiKey == null || apiKey.length() == 0) {
+            throw new IllegalArgumentException("API key not set");
+        }
+
+        Location cached = cache.getByWords(words);
+        if (cached != null) {
+            return cached;
+        }
+        Location result = words(words, apiKey);
+        if (result != null) {
+            cache.put(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of toWords and words lookups requested, including the collapsed ones.
+     *
+     * @return the number of lookups since the class was loaded.
+     */
+    public static long getLookups() {
+        return LOOKUPS.getCalls();
+    }
 
-        return gson.fromJson(response, Location.class);
+    /**
+     * Returns the number of toWords and words lookups that shared the response of an identical lookup in flight,
+     * made with the same api key, instead of calling the location APIs.
+     *
+     * @return the number of collapsed lookups since the class was loaded.
+     */
+    public static long getCollapsedLookups() {
+        return LOOKUPS.getCollapsed();
+    }
+
+    /**
+     * Sets the policy of the calls made by toWords and words: their timeouts, retries, hedging and circuit breaker.
+     * The default policy makes a single attempt without timeouts, retries, hedging or circuit breaker.
+     *
+     * @param policy the policy.
+     * @example UnlCore.setCallPolicy(new CallPolicy(1000, 2000, 3, 50, 1000, 0.95, 5, 10000));
+     */
+    public static void setCallPolicy(@NotNull CallPolicy policy) {
+        UnlCore.callPolicy = policy;
+    }
+
+    /**
+     * Returns the policy of the calls made by toWords and words.
+     *
+     * @return the policy.
+     */
+    @NotNull
+    public static CallPolicy getCallPolicy() {
+        return callPolicy;
+    }
+
+    /**
+     * Installs the listener of the encode and decode calls, the calls to the location endpoints and the bulk encodes,
+     * replacing the previous one.
+     *
+     * @param listener the listener, or null to remove it.
+     * @example UnlCore.setListener(new UnlCoreMetrics());
+     */
+    public static void setListener(@Nullable UnlCoreListener listener) {
+        UnlCore.listener = listener == null ? UnlCoreListener.NOOP : listener;
+    }
+
+    /**
+     * Returns the installed listener.
+     *
+     * @return the listener, UnlCoreListener.NOOP if none is installed.
+     */
+    @NotNull
+    public static UnlCoreListener getListener() {
+        return listener;
     }
 }
@@ -1,11 +1,50 @@
 package unl.core;
 
 public class UnlCoreException extends Exception {
+    /**
+     * The status of the exceptions without an HTTP response.
+     */
+    public static final int NO_STATUS = -1;
+
+    private final int status;
+
     public UnlCoreException(String errorMessage, Throwable t) {
-        super(errorMessage, t);
+        this(errorMessage, t, NO_STATUS);
     }
 
     public UnlCoreException(String errorMessage) {
+        this(errorMessage, NO_STATUS);
+    }
+
+    /**
+     * Creates an exception of a call to a location endpoint.
+     *
+     * @param errorMessage the message.
+     * @param status       the HTTP status of the response, NO_STATUS if there was no valid response.
+     */
+    public UnlCoreException(String errorMessage, int status) {
         super(errorMessage);
+        this.status = status;
+    }
+
+    /**
+     * Creates an exception of a call to a location endpoint.
+     *
+     * @param errorMessage the message.
+     * @param t            the cause.
+     * @param status       the HTTP status of the response, NO_STATUS if there was no valid response.
+     */
+    public UnlCoreException(String errorMessage, Throwable t, int status) {
+        super(errorMessage, t);
+        this.status = status;
+    }
+
+    /**
+     * Returns the HTTP status of the response of the location endpoint.
+     *
+     * @return the status, NO_STATUS if there was no valid response or the exception is not about a response.
+     */
+    public int getStatus() {
+        return status;
     }
 }
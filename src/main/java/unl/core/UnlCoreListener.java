@@ -0,0 +1,132 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * Listener of the encode and decode calls, the calls to the location endpoints and the bulk encodes, installed with
+ * {@link UnlCore#setListener(UnlCoreListener)}.
+ * <p>
+ * All methods do nothing by default, and {@link #NOOP} is installed until another listener is, so instrumentation
+ * costs nothing when it is off. The methods are called on the threads making the calls, so they must be thread-safe
+ * and fast. A start method and its end method are always called on the same thread.
+ * <p>
+ * The optional core-jfr module adds UnlCoreJfrListener, emitting Flight Recorder events.
+ *
+ * @see UnlCoreMetrics
+ */
+public interface UnlCoreListener {
+    /**
+     * The listener that ignores everything.
+     */
+    UnlCoreListener NOOP = new UnlCoreListener() {
+    };
+
+    /**
+     * Called once for each locationId encoded by encode or encodeInto.
+     */
+    default void onEncode() {
+    }
+
+    /**
+     * Called once for each locationId decoded by decode or decodeInto.
+     */
+    default void onDecode() {
+    }
+
+    /**
+     * Called before a location endpoint is called.
+     *
+     * @param endpoint the url of the endpoint.
+     */
+    default void onEndpointCallStart(@NotNull String endpoint) {
+    }
+
+    /**
+     * Called after a location endpoint is called, whether the call succeeded or not.
+     *
+     * @param endpoint      the url of the endpoint.
+     * @param status        the HTTP status of the response, -1 if no valid response was received.
+     * @param durationNanos the time from the start of the call to the end of the response body, in nanoseconds.
+     * @param responseBytes the number of bytes read from the response body.
+     * @param error         the exception the call failed with, null if it succeeded.
+     */
+    default void onEndpointCall(@NotNull String endpoint, int status, long durationNanos, long responseBytes, @Nullable Exception error) {
+    }
+
+    /**
+     * Called before a file of coordinates is encoded by BulkEncoder.
+     *
+     * @param input the file of coordinates.
+     */
+    default void onBulkEncodeStart(@NotNull Path input) {
+    }
+
+    /**
+     * Called after a file of coordinates is encoded by BulkEncoder, whether the encode succeeded or not.
+     *
+     * @param input         the file of coordinates.
+     * @param points        the number of points encoded.
+     * @param inputBytes    the size of the file of coordinates.
+     * @param durationNanos the time the encode took, in nanoseconds.
+     */
+    default void onBulkEncode(@NotNull Path input, long points, long inputBytes, long durationNanos) {
+    }
+
+    /**
+     * Returns a listener forwarding every call to each of the listeners, in order.
+     *
+     * @param listeners the listeners.
+     * @return the listener.
+     * @example UnlCore.setListener(UnlCoreListener.of(metrics, new UnlCoreJfrListener()));
+     */
+    @NotNull
+    static UnlCoreListener of(@NotNull UnlCoreListener... listeners) {
+        UnlCoreListener[] copy = listeners.clone();
+        return new UnlCoreListener() {
+            @Override
+            public void onEncode() {
+                for (UnlCoreListener listener : copy) {
+                    listener.onEncode();
+                }
+            }
+
+            @Override
+            public void onDecode() {
+                for (UnlCoreListener listener : copy) {
+                    listener.onDecode();
+                }
+            }
+
+            @Override
+            public void onEndpointCallStart(@NotNull String endpoint) {
+                for (UnlCoreListener listener : copy) {
+                    listener.onEndpointCallStart(endpoint);
+                }
+            }
+
+            @Override
+            public void onEndpointCall(@NotNull String endpoint, int status, long durationNanos, long responseBytes, @Nullable Exception error) {
+                for (UnlCoreListener listener : copy) {
+                    listener.onEndpointCall(endpoint, status, durationNanos, responseBytes, error);
+                }
+            }
+
+            @Override
+            public void onBulkEncodeStart(@NotNull Path input) {
+                for (UnlCoreListener listener : copy) {
+                    listener.onBulkEncodeStart(input);
+                }
+            }
+
+            @Override
+            public void onBulkEncode(@NotNull Path input, long points, long inputBytes, long durationNanos) {
+                for (UnlCoreListener listener : copy) {
+                    listener.onBulkEncode(input, points, inputBytes, durationNanos);
+                }
+            }
+        };
+    }
+}
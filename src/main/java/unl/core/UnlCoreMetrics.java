@@ -0,0 +1,239 @@
+package unl.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener counting the encode and decode calls, and recording the status codes, latencies and response sizes of the
+ * calls to the location endpoints and the throughput of the bulk encodes.
+ * <p>
+ * Latencies and response sizes are kept in histograms with 8 buckets per power of two, so a quantile is reported
+ * within 12.5% of the recorded value, in constant memory. Recording never blocks, so a single instance is shared by
+ * all threads, and the getters can be polled by a metrics exporter at any time.
+ *
+ * @example UnlCoreMetrics metrics = new UnlCoreMetrics(); UnlCore.setListener(metrics); ... metrics.getCallLatencyNanos(0.99);
+ */
+public class UnlCoreMetrics implements UnlCoreListener {
+    private final LongAdder encodes = new LongAdder();
+    private final LongAdder decodes = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final Histogram callLatencies = new Histogram();
+    private final Histogram responseSizes = new Histogram();
+    private final LongAdder bulkEncodes = new LongAdder();
+    private final LongAdder bulkPoints = new LongAdder();
+    private final LongAdder bulkBytes = new LongAdder();
+    private final LongAdder bulkNanos = new LongAdder();
+
+    @Override
+    public void onEncode() {
+        encodes.increment();
+    }
+
+    @Override
+    public void onDecode() {
+        decodes.increment();
+    }
+
+    @Override
+    public void onEndpointCall(@NotNull String endpoint, int status, long durationNanos, long responseBytes, @Nullable Exception error) {
+        statusCounts.computeIfAbsent(status, key -> new LongAdder()).increment();
+        if (error != null) {
+            failedCalls.increment();
+        }
+        callLatencies.record(durationNanos);
+        responseSizes.record(responseBytes);
+    }
+
+    @Override
+    public void onBulkEncode(@NotNull Path input, long points, long inputBytes, long durationNanos) {
+        bulkEncodes.increment();
+        bulkPoints.add(points);
+        bulkBytes.add(inputBytes);
+        bulkNanos.add(durationNanos);
+    }
+
+    /**
+     * Returns the number of locationIds encoded by encode and encodeInto.
+     */
+    public long getEncodes() {
+        return encodes.sum();
+    }
+
+    /**
+     * Returns the number of locationIds decoded by decode and decodeInto.
+     */
+    public long getDecodes() {
+        return decodes.sum();
+    }
+
+    /**
+     * Returns the number of calls to the location endpoints.
+     */
+    public long getCalls() {
+        return callLatencies.getCount();
+    }
+
+    /**
+     * Returns the number of calls to the location endpoints that failed, either with an error status or without a
+     * valid response.
+     */
+    public long getFailedCalls() {
+        return failedCalls.sum();
+    }
+
+    /**
+     * Returns the number of calls to the location endpoints by HTTP status, -1 for the calls without a valid
+     * response.
+     *
+     * @return a snapshot of the counts, sorted by status.
+     */
+    @NotNull
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : statusCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Returns a quantile of the latencies of the calls to the location endpoints.
+     *
+     * @param quantile the quantile, from 0 to 1, e.g. 0.99 for the 99th percentile.
+     * @return the latency in nanoseconds, rounded up to the histogram resolution, 0 if there were no calls.
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1.
+     */
+    public long getCallLatencyNanos(double quantile) {
+        return callLatencies.getQuantile(quantile);
+    }
+
+    /**
+     * Returns the total time spent calling the location endpoints, in nanoseconds.
+     */
+    public long getTotalCallNanos() {
+        return callLatencies.getSum();
+    }
+
+    /**
+     * Returns a quantile of the sizes of the response bodies of the location endpoints.
+     *
+     * @param quantile the quantile, from 0 to 1, e.g. 0.5 for the median.
+     * @return the size in bytes, rounded up to the histogram resolution, 0 if there were no calls.
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1.
+     */
+    public long getResponseBytes(double quantile) {
+        return responseSizes.getQuantile(quantile);
+    }
+
+    /**
+     * Returns the total number of bytes read from the response bodies of the location endpoints.
+     */
+    public long getTotalResponseBytes() {
+        return responseSizes.getSum();
+    }
+
+    /**
+     * Returns the number of files encoded by BulkEncoder.
+     */
+    public long getBulkEncodes() {
+        return bulkEncodes.sum();
+    }
+
+    /**
+     * Returns the number of points encoded by BulkEncoder.
+     */
+    public long getBulkPoints() {
+        return bulkPoints.sum();
+    }
+
+    /**
+     * Returns the number of bytes of coordinates encoded by BulkEncoder.
+     */
+    public long getBulkBytes() {
+        return bulkBytes.sum();
+    }
+
+    /**
+     * Returns the total time spent encoding files by BulkEncoder, in nanoseconds.
+     */
+    public long getTotalBulkNanos() {
+        return bulkNanos.sum();
+    }
+
+    /**
+     * Histogram of non-negative values, with 8 exact buckets for the values below 8 and 8 buckets for each power of
+     * two above.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        void record(long value) {
+            long clamped = Math.max(0, value);
+            counts.incrementAndGet(bucket(clamped));
+            count.increment();
+            sum.add(clamped);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getSum() {
+            return sum.sum();
+        }
+
+        long getQuantile(double quantile) {
+            if (!(quantile >= 0 && quantile <= 1)) {
+                throw new IllegalArgumentException("Invalid quantile");
+            }
+
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lowerBound + (1L << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package unl.core;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BulkEncoderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void encodeCsvTest() throws IOException {
+        Random random = new Random(21);
+        double[] lats = new double[2000];
+        double[] lons = new double[2000];
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+            /* extra fields, spaces, CRLF line ends and blank lines */
+            csv.append(lats[i]).append(i % 3 == 0 ? ", " : ",").append(lons[i]).append(i % 5 == 0 ? ",extra" : "");
+            csv.append(i % 7 == 0 ? "\r\n" : "\n").append(i % 11 == 0 ? "\n" : "");
+        }
+        Path input = folder.getRoot().toPath().resolve("points.csv");
+        Path output = folder.getRoot().toPath().resolve("ids.csv");
+        Files.write(input, csv.toString().getBytes(StandardCharsets.US_ASCII));
+
+        /* small chunks, so lines are split across many of them */
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Assert.assertEquals(BulkEncoder.encode(input, output, 9, false, pool, 100), lats.length);
+        List<String> lines = Files.readAllLines(output);
+        Assert.assertEquals(lines.size(), lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            Assert.assertEquals(lines.get(i), UnlCore.encode(lats[i], lons[i], 9));
+        }
+
+        Assert.assertEquals(BulkEncoder.encode(input, output, 7, true, pool, 1000), lats.length);
+        lines = Files.readAllLines(output);
+        for (int i = 0; i < lats.length; i++) {
+            String locationId = UnlCore.encode(lats[i], lons[i], 7);
+            double[] cell = UnlCore.decodeInto(locationId, new double[6]);
+            StringBuilder expected = new StringBuilder(locationId);
+            for (double value : cell) {
+                expected.append(',').append(BigDecimal.valueOf(value).toPlainString());
+            }
+            Assert.assertEquals(lines.get(i), expected.toString());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void writesPlainNumbersTest() throws IOException {
+        /* near the origin the centres and bounds are below 0.001, where Double.toString is in scientific notation */
+        StringBuilder csv = new StringBuilder();
+        double[][] points = {{1e-7, 1e-7}, {-2e-6, 3e-5}, {4e-4, -5e-8}, {0, 0}, {-1e-9, -1e-9}, {57.648, 10.41}};
+        for (double[] point : points) {
+            csv.append(point[0]).append(',').append(point[1]).append('\n');
+        }
+        Path input = folder.getRoot().toPath().resolve("points.csv");
+        Path output = folder.getRoot().toPath().resolve("ids.csv");
+        Files.write(input, csv.toString().getBytes(StandardCharsets.US_ASCII));
+
+        for (int precision = 6; precision <= 16; precision += 5) {
+            BulkEncoder.encode(input, output, precision, true);
+            List<String> lines = Files.readAllLines(output);
+            for (int i = 0; i < points.length; i++) {
+                String locationId = UnlCore.encode(points[i][0], points[i][1], precision);
+                StringBuilder expected = new StringBuilder(locationId);
+                for (double value : UnlCore.decodeInto(locationId, new double[6])) {
+                    expected.append(',').append(BigDecimal.valueOf(value).toPlainString());
+                }
+                Assert.assertEquals(lines.get(i), expected.toString());
+                Assert.assertFalse(lines.get(i), lines.get(i).contains("E"));
+            }
+        }
+    }
+
+    @Test
+    public void encodeNdjsonTest() throws IOException {
+        Path input = folder.getRoot().toPath().resolve("points.ndjson");
+        Path output = folder.getRoot().toPath().resolve("ids.ndjson");
+        Files.write(input, ("{\"name\":\"Jutland\",\"lat\": 57.648, \"lon\": 10.41}\n"
+                + "\n"
+                + "{\"lon\":4.90065,\"lat\":52.37686}\n").getBytes(StandardCharsets.US_ASCII));
+
+        Assert.assertEquals(BulkEncoder.encode(input, output, 6, false), 2);
+        List<String> lines = Files.readAllLines(output);
+        Assert.assertEquals(lines.get(0), "{\"locationId\":\"u4pruy\"}");
+        Assert.assertEquals(lines.get(1), "{\"locationId\":\"u173zw\"}");
+
+        BulkEncoder.encode(input, output, 6, true);
+        Assert.assertEquals(Files.readAllLines(output).get(0),
+                "{\"locationId\":\"u4pruy\",\"lat\":57.648,\"lon\":10.41,\"bounds\":{\"n\":57.6507568359375,\"e\":10.4150390625,\"s\":57.645263671875,\"w\":10.404052734375}}");
+    }
+
+    @Test
+    public void rejectsInvalidLineTest() throws IOException {
+        Path input = folder.getRoot().toPath().resolve("points.csv");
+        Files.write(input, "57.648,10.41\n57.648;10.41\n".getBytes(StandardCharsets.US_ASCII));
+        try {
+            BulkEncoder.encode(input, folder.getRoot().toPath().resolve("ids.csv"), 9, false);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(e.getMessage(), "Invalid coordinates at byte 13");
+        }
+    }
+
+    @Test
+    public void deletesOutputOnErrorTest() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            csv.append(i == 500 ? "57.648;10.41" : "57.648,10.41").append('\n');
+        }
+        Path input = folder.getRoot().toPath().resolve("points.csv");
+        Path output = folder.getRoot().toPath().resolve("ids.csv");
+        Files.write(input, csv.toString().getBytes(StandardCharsets.US_ASCII));
+        Files.write(output, "previous".getBytes(StandardCharsets.US_ASCII));
+
+        /* the chunks before the invalid line were written, but no truncated output is left */
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            BulkEncoder.encode(input, output, 9, false, pool, 100);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(e.getMessage(), "Invalid coordinates at byte 6500");
+        }
+        Assert.assertFalse(Files.exists(output));
+        pool.shutdown();
+
+        /* an input that cannot be read leaves the output alone */
+        Files.write(output, "previous".getBytes(StandardCharsets.US_ASCII));
+        try {
+            BulkEncoder.encode(folder.getRoot().toPath().resolve("missing.csv"), output, 9, false);
+            Assert.fail();
+        } catch (IOException e) {
+            /* expected */
+        }
+        Assert.assertTrue(Files.exists(output));
+    }
+
+    @Test
+    public void parseDoubleTest() {
+        Random random = new Random(22);
+        for (int i = 0; i < 100000; i++) {
+            String number;
+            switch (i % 4) {
+                case 0:
+                    number = Double.toString(random.nextDouble() * 360 - 180);
+                    break;
+                case 1:
+                    number = BigDecimal.valueOf(random.nextDouble() * 180 - 90).setScale(random.nextInt(12), RoundingMode.HALF_UP).toPlainString();
+                    break;
+                case 2:
+                    number = Double.toString(Double.longBitsToDouble(random.nextLong()));
+                    break;
+                default:
+                    number = random.nextInt(1000) + "e" + (random.nextInt(60) - 30);
+            }
+            if (number.contains("N") || number.contains("I")) {
+                continue;
+            }
+            byte[] bytes = (" " + number + " ").getBytes(StandardCharsets.US_ASCII);
+            Assert.assertEquals(number, BulkEncoder.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length), Double.parseDouble(number), 0);
+        }
+
+        for (String invalid : new String[]{"", "-", ".", "1.2.3", "1e", "1x", "0x10", "NaN"}) {
+            byte[] bytes = invalid.getBytes(StandardCharsets.US_ASCII);
+            Assert.assertTrue(invalid, Double.isNaN(BulkEncoder.parseDouble(ByteBuffer.wrap(bytes), 0, bytes.length)));
+        }
+    }
+}
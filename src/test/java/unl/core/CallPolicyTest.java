@@ -0,0 +1,231 @@
+package unl.core;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CallPolicyTest {
+    private static final String BODY = "ok";
+
+    private HttpServer server;
+    private String endpoint;
+    /* the faults injected in the next responses, as {status, delay in ms}; then 200 without delay */
+    private final Queue<int[]> faults = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            int[] fault = faults.poll();
+            int status = fault == null ? 200 : fault[0];
+            try {
+                if (fault != null && fault[1] > 0) {
+                    Thread.sleep(fault[1]);
+                }
+                byte[] body = (status == 200 ? BODY : "{}").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                /* the client timed out */
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/geohash/u173zq37x";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void retriesServerErrorsTest() throws UnlCoreException {
+        faults.add(new int[]{503, 0});
+        faults.add(new int[]{429, 0});
+        CallPolicy policy = new CallPolicy(1000, 1000, 3, 1, 10, 0, 0, 0);
+
+        Assert.assertEquals(LocationService.callEndpoint(endpoint, "key", policy), BODY);
+        Assert.assertEquals(requests.get(), 3);
+        Assert.assertEquals(policy.getRetries(), 2);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttemptsTest() {
+        for (int i = 0; i < 4; i++) {
+            faults.add(new int[]{500, 0});
+        }
+        CallPolicy policy = new CallPolicy(1000, 1000, 3, 1, 10, 0, 0, 0);
+        try {
+            LocationService.callEndpoint(endpoint, "key", policy);
+            Assert.fail();
+        } catch (UnlCoreException e) {
+            Assert.assertEquals(e.getStatus(), 500);
+        }
+        Assert.assertEquals(requests.get(), 3);
+    }
+
+    @Test
+    public void doesNotRetryClientErrorsTest() {
+        faults.add(new int[]{404, 0});
+        CallPolicy policy = new CallPolicy(1000, 1000, 3, 1, 10, 0, 0, 0);
+        try {
+            LocationService.callEndpoint(endpoint, "key", policy);
+            Assert.fail();
+        } catch (UnlCoreException e) {
+            Assert.assertEquals(e.getStatus(), 404);
+        }
+        Assert.assertEquals(requests.get(), 1);
+        Assert.assertEquals(policy.getRetries(), 0);
+    }
+
+    @Test
+    public void retriesTimeoutsTest() throws UnlCoreException {
+        faults.add(new int[]{200, 1000});
+        CallPolicy policy = new CallPolicy(1000, 200, 2, 1, 10, 0, 0, 0);
+
+        Assert.assertEquals(LocationService.callEndpoint(endpoint, "key", policy), BODY);
+        Assert.assertEquals(requests.get(), 2);
+
+        /* without retries the timeout fails the call */
+        faults.add(new int[]{200, 1000});
+        try {
+            LocationService.callEndpoint(endpoint, "key", new CallPolicy(1000, 200));
+            Assert.fail();
+        } catch (UnlCoreException e) {
+            Assert.assertEquals(e.getStatus(), UnlCoreException.NO_STATUS);
+            Assert.assertTrue(CallPolicy.isRetryable(e));
+        }
+    }
+
+    @Test
+    public void hedgesSlowRequestsTest() throws UnlCoreException {
+        CallPolicy policy = new CallPolicy(1000, 5000, 1, 0, 0, 0.9, 0, 0);
+        for (int i = 0; i < CallPolicy.MIN_HEDGE_SAMPLES; i++) {
+            LocationService.callEndpoint(endpoint, "key", policy);
+        }
+        Assert.assertEquals(policy.getHedges(), 0);
+
+        /* the slow request is overtaken by its duplicate */
+        faults.add(new int[]{200, 2000});
+        long started = System.nanoTime();
+        Assert.assertEquals(LocationService.callEndpoint(endpoint, "key", policy), BODY);
+        Assert.assertTrue((System.nanoTime() - started) / 1000000 < 1500);
+        Assert.assertEquals(policy.getHedges(), 1);
+        Assert.assertEquals(requests.get(), CallPolicy.MIN_HEDGE_SAMPLES + 2);
+    }
+
+    @Test
+    public void circuitBreakerTest() throws UnlCoreException {
+        AtomicLong clock = new AtomicLong();
+        CallPolicy policy = new CallPolicy(1000, 1000, 1, 0, 0, 0, 2, 1000, clock::get);
+        for (int i = 0; i < 3; i++) {
+            faults.add(new int[]{500, 0});
+        }
+        for (int i = 0; i < 2; i++) {
+            try {
+                LocationService.callEndpoint(endpoint, "key", policy);
+                Assert.fail();
+            } catch (UnlCoreException e) {
+                Assert.assertEquals(e.getStatus(), 500);
+            }
+        }
+        Assert.assertTrue(policy.isOpen());
+
+        /* an open breaker fails fast, without calling the endpoint */
+        try {
+            LocationService.callEndpoint(endpoint, "key", policy);
+            Assert.fail();
+        } catch (UnlCoreException e) {
+            Assert.assertEquals(e.getStatus(), UnlCoreException.NO_STATUS);
+            Assert.assertFalse(CallPolicy.isRetryable(e));
+        }
+        Assert.assertEquals(requests.get(), 2);
+        Assert.assertEquals(policy.getRejected(), 1);
+
+        /* a failed trial call opens it again */
+        clock.set(1000);
+        try {
+            LocationService.callEndpoint(endpoint, "key", policy);
+            Assert.fail();
+        } catch (UnlCoreException e) {
+            Assert.assertEquals(e.getStatus(), 500);
+        }
+        Assert.assertTrue(policy.isOpen());
+
+        /* and a successful one closes it */
+        clock.set(2000);
+        Assert.assertEquals(LocationService.callEndpoint(endpoint, "key", policy), BODY);
+        Assert.assertFalse(policy.isOpen());
+        Assert.assertEquals(requests.get(), 4);
+    }
+
+    @Test
+    public void lateFailuresDoNotExtendOpenTimeTest() {
+        AtomicLong clock = new AtomicLong();
+        CallPolicy policy = new CallPolicy(1000, 1000, 1, 0, 0, 0, 2, 1000, clock::get);
+        policy.onFailure();
+        policy.onFailure();
+        Assert.assertTrue(policy.isOpen());
+
+        /* calls in flight when the breaker opened fail later */
+        clock.set(900);
+        policy.onFailure();
+        policy.onFailure();
+        Assert.assertFalse(policy.tryAcquire());
+
+        clock.set(1000);
+        Assert.assertTrue(policy.tryAcquire());
+        /* a single trial call */
+        Assert.assertFalse(policy.tryAcquire());
+    }
+
+    @Test
+    public void clientErrorsDoNotOpenBreakerTest() {
+        CallPolicy policy = new CallPolicy(1000, 1000, 1, 0, 0, 0, 2, 1000);
+        for (int i = 0; i < 3; i++) {
+            faults.add(new int[]{404, 0});
+            try {
+                LocationService.callEndpoint(endpoint, "key", policy);
+                Assert.fail();
+            } catch (UnlCoreException e) {
+                Assert.assertEquals(e.getStatus(), 404);
+            }
+        }
+        Assert.assertFalse(policy.isOpen());
+    }
+
+    @Test
+    public void defaultPolicyIsSingleCallTest() {
+        /* toWords and words make a single attempt without timeouts unless a policy is set */
+        CallPolicy policy = UnlCore.getCallPolicy();
+        Assert.assertEquals(policy.getMaxAttempts(), 1);
+        Assert.assertEquals(policy.getConnectTimeoutMillis(), 0);
+        Assert.assertEquals(policy.getReadTimeoutMillis(), 0);
+        Assert.assertEquals(policy.hedgeDelayNanos(), -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidPolicyTest() {
+        new CallPolicy(1000, 1000, 0, 0, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,102 @@
+package unl.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+public class ElevationKeyTest {
+    @Test
+    public void roundTripTest() {
+        String[] locationIds = {"u4pruydq@3", "u4pruydq#-87", "u4pruydq", "u4p@-2", "6gkzwgjz#1048575", "6gkzwgjz@-1048576"};
+        for (String locationId : locationIds) {
+            Assert.assertEquals(ElevationKey.toLocationId(ElevationKey.fromLocationId(locationId)), locationId);
+        }
+
+        long key = ElevationKey.fromLocationId("U4PRUYDQ#-87");
+        Assert.assertEquals(ElevationKey.cellKey(key), UnlCore.fromLocationId("u4pruydq"));
+        Assert.assertEquals(ElevationKey.elevation(key), -87);
+        Assert.assertTrue(ElevationKey.isHeightInCm(key));
+        Assert.assertEquals(ElevationKey.elevationType(key), "heightincm");
+        Assert.assertTrue(key > 0);
+
+        key = ElevationKey.encode(57.64911, 10.40744, 8, new Elevation(2));
+        Assert.assertEquals(ElevationKey.toLocationId(key), UnlCore.encode(57.64911, 10.40744, 8, new Elevation(2)));
+        Assert.assertEquals(ElevationKey.elevationType(key), "floor");
+    }
+
+    @Test
+    public void floorRangeTest() {
+        long cell = UnlCore.fromLocationId("u4pruyd");
+        long[] cells = {cell, UnlCore.fromLocationId("u4pruyd0"), UnlCore.fromLocationId("u4pruydz"),
+                UnlCore.fromLocationId("u4pruye"), UnlCore.fromLocationId("u4pruy")};
+        NavigableSet<Long> index = new TreeSet<>();
+        for (long key : cells) {
+            for (int elevation = -5; elevation <= 12; elevation++) {
+                index.add(ElevationKey.of(key, elevation, "floor"));
+                index.add(ElevationKey.of(key, elevation * 100, "heightincm"));
+            }
+        }
+
+        /* the floors -1 to 3 of the cell, and nothing else, are a single range */
+        long[] range = ElevationKey.floorRange(cell, -1, 3);
+        List<String> locationIds = new ArrayList<>();
+        for (long key : index.subSet(range[0], true, range[1], true)) {
+            locationIds.add(ElevationKey.toLocationId(key));
+        }
+        Assert.assertEquals(locationIds.toString(), "[u4pruyd@-1, u4pruyd, u4pruyd@1, u4pruyd@2, u4pruyd@3]");
+
+        /* all elevations of the cell, floors first */
+        range = ElevationKey.cellRange(cell);
+        NavigableSet<Long> all = index.subSet(range[0], true, range[1], true);
+        Assert.assertEquals(all.size(), 36);
+        Assert.assertEquals(ElevationKey.toLocationId(all.first()), "u4pruyd@-5");
+        Assert.assertEquals(ElevationKey.toLocationId(all.last()), "u4pruyd#1200");
+    }
+
+    @Test
+    public void neighboursTest() {
+        long key = ElevationKey.fromLocationId("u4pruydq@3");
+        long[] neighbours = ElevationKey.neighbours(key);
+        long[] cells = UnlCore.neighbours(UnlCore.fromLocationId("u4pruydq"));
+
+        Assert.assertEquals(ElevationKey.toLocationId(ElevationKey.up(key)), "u4pruydq@4");
+        Assert.assertEquals(ElevationKey.toLocationId(ElevationKey.down(key)), "u4pruydq@2");
+        Assert.assertEquals(neighbours[8], ElevationKey.up(key));
+        Assert.assertEquals(neighbours[17], ElevationKey.down(key));
+        for (int i = 0; i < 8; i++) {
+            Assert.assertEquals(neighbours[i], ElevationKey.of(cells[i], 3, "floor"));
+            Assert.assertEquals(neighbours[9 + i], ElevationKey.of(cells[i], 4, "floor"));
+            Assert.assertEquals(neighbours[18 + i], ElevationKey.of(cells[i], 2, "floor"));
+        }
+
+        /* elevations are clamped at their limits */
+        key = ElevationKey.of(UnlCore.fromLocationId("u4pruydq"), ElevationKey.MAX_ELEVATION, "heightincm");
+        Assert.assertEquals(ElevationKey.up(key), key);
+        Assert.assertEquals(ElevationKey.neighbours(key)[8], key);
+        key = ElevationKey.of(UnlCore.fromLocationId("u4pruydq"), ElevationKey.MIN_ELEVATION, "floor");
+        Assert.assertEquals(ElevationKey.down(key), key);
+    }
+
+    @Test
+    public void rejectsInvalidTest() {
+        String[] locationIds = {"u4pruydqr@3", "u4pruydq@1048576", "u4pruydq#-1048577", "u4pruydq@"};
+        for (String locationId : locationIds) {
+            try {
+                ElevationKey.fromLocationId(locationId);
+                Assert.fail(locationId);
+            } catch (IllegalArgumentException e) {
+                /* expected */
+            }
+        }
+        try {
+            ElevationKey.cellKey(0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            /* expected */
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package unl.core;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class GridTilesTest {
+    @Test
+    public void tileBoundsTest() {
+        Bounds world = GridTiles.tileBounds(0, 0, 0);
+        Assert.assertEquals(world.getW(), -180, 0);
+        Assert.assertEquals(world.getE(), 180, 0);
+        Assert.assertEquals(world.getN(), 85.0511287798, 1e-9);
+        Assert.assertEquals(world.getS(), -85.0511287798, 1e-9);
+
+        /* tile of Amsterdam at zoom 12 */
+        Bounds tile = GridTiles.tileBounds(12, 2103, 1346);
+        Assert.assertTrue(tile.getS() < 52.37 && tile.getN() > 52.37 && tile.getW() < 4.9 && tile.getE() > 4.9);
+    }
+
+    @Test
+    public void precisionForZoomTest() {
+        Assert.assertEquals(GridTiles.precisionForZoom(0), 1);
+        Assert.assertEquals(GridTiles.precisionForZoom(11), 5);
+        Assert.assertEquals(GridTiles.precisionForZoom(12), 6);
+        Assert.assertEquals(GridTiles.precisionForZoom(GridTiles.MAX_ZOOM), 12);
+        for (int z = 1; z <= GridTiles.MAX_ZOOM; z++) {
+            Assert.assertTrue(GridTiles.precisionForZoom(z) >= GridTiles.precisionForZoom(z - 1));
+        }
+
+        /* cells are at least a sixteenth of the tile at the equator in both directions */
+        for (int z = 0; z <= GridTiles.MAX_ZOOM; z++) {
+            Bounds tile = GridTiles.tileBounds(z, 0, (1 << z) / 2);
+            int precision = GridTiles.precisionForZoom(z);
+            Assert.assertTrue(LocationIdCodec.cellWidth(precision) * 16 >= tile.getE() - tile.getW());
+            Assert.assertTrue(LocationIdCodec.cellHeight(precision) * 16 >= tile.getN() - tile.getS());
+        }
+    }
+
+    @Test
+    public void binaryTileTest() {
+        GridTiles tiles = new GridTiles(1 << 20);
+        ByteBuffer tile = tiles.binaryTile(12, 2103, 1346);
+
+        int count = tile.getInt();
+        Assert.assertEquals(tile.getInt(), GridTiles.precisionForZoom(12));
+        Assert.assertEquals(count, UnlCore.gridLineCount(GridTiles.tileBounds(12, 2103, 1346), GridTiles.precisionForZoom(12)));
+        Assert.assertTrue(count > 0 && count <= 64);
+        Assert.assertEquals(tile.remaining(), 8 * count);
+
+        /* lines are clipped to the tile and either horizontal or vertical */
+        while (tile.hasRemaining()) {
+            int startX = tile.getShort(), startY = tile.getShort(), endX = tile.getShort(), endY = tile.getShort();
+            for (int pixel : new int[]{startX, startY, endX, endY}) {
+                Assert.assertTrue(pixel >= 0 && pixel <= GridTiles.EXTENT);
+            }
+            Assert.assertTrue(startX == endX || startY == endY);
+        }
+    }
+
+    @Test
+    public void geoJsonTileTest() {
+        GridTiles tiles = new GridTiles(1 << 20);
+        ByteBuffer tile = tiles.geoJsonTile(12, 2103, 1346);
+
+        JsonObject geometry = JsonParser.parseString(StandardCharsets.UTF_8.decode(tile).toString()).getAsJsonObject();
+        Assert.assertEquals(geometry.get("type").getAsString(), "MultiLineString");
+        Assert.assertEquals(geometry.getAsJsonArray("coordinates").size(),
+                UnlCore.gridLineCount(GridTiles.tileBounds(12, 2103, 1346), GridTiles.precisionForZoom(12)));
+    }
+
+    @Test
+    public void cacheTest() {
+        int tileBytes = new GridTiles(0).binaryTile(12, 2103, 1346).remaining();
+        GridTiles tiles = new GridTiles(2L * tileBytes);
+
+        /* serves hot tiles from the cache */
+        ByteBuffer first = tiles.binaryTile(12, 2103, 1346);
+        Assert.assertEquals(tiles.binaryTile(12, 2103, 1346), first);
+        Assert.assertEquals(tiles.getHits(), 1);
+        Assert.assertEquals(tiles.getMisses(), 1);
+
+        /* evicts the least recently used tiles beyond the size limit */
+        tiles.binaryTile(12, 2103, 1347);
+        tiles.binaryTile(12, 2103, 1346);
+        tiles.binaryTile(12, 2103, 1348);
+        Assert.assertTrue(tiles.getCacheBytes() <= 2L * tileBytes);
+        tiles.binaryTile(12, 2103, 1346);
+        Assert.assertEquals(tiles.getHits(), 3);
+        tiles.binaryTile(12, 2103, 1347);
+        Assert.assertEquals(tiles.getHits(), 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidTileTest() {
+        new GridTiles(0).binaryTile(3, 8, 0);
+    }
+}
@@ -0,0 +1,116 @@
+package unl.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LocationCacheTest {
+    private static Location location(double lat, double lon, String words) {
+        String geohash = UnlCore.encode(lat, lon, 9);
+        Bounds bounds = UnlCore.bounds(geohash);
+        return new Location(new Point(lat, lon), new Elevation(0), bounds, geohash, words);
+    }
+
+    @Test
+    public void cellLookupTest() {
+        LocationCache cache = new LocationCache(100, 60000);
+        Location location = location(52.37686, 4.90065, "apple.banana.cherry");
+        cache.put(location);
+
+        /* any point or id inside the cell is a hit */
+        Bounds bounds = location.getBounds();
+        Assert.assertSame(cache.get((bounds.getN() + bounds.getS()) / 2, bounds.getW() + 1e-9), location);
+        Assert.assertSame(cache.getByLocationId(location.getGeohash()), location);
+        Assert.assertSame(cache.getByLocationId(location.getGeohash() + "bc"), location);
+        Assert.assertSame(cache.getByLocationId(location.getGeohash() + "@0"), location);
+        Assert.assertSame(cache.getByWords("apple.banana.cherry"), location);
+        Assert.assertEquals(cache.getHits(), 5);
+
+        /* neighbouring cells, coarser ids and elevations miss */
+        Assert.assertNull(cache.get(bounds.getN() + 1e-9, bounds.getW() + 1e-9));
+        Assert.assertNull(cache.getByLocationId(location.getGeohash().substring(0, 8)));
+        Assert.assertNull(cache.getByLocationId(location.getGeohash() + "@2"));
+        Assert.assertNull(cache.getByWords("apple.banana.date"));
+        Assert.assertEquals(cache.getMisses(), 4);
+    }
+
+    @Test
+    public void expiresEntriesTest() {
+        AtomicLong now = new AtomicLong();
+        LocationCache cache = new LocationCache(100, 1000, 9, null, now::get);
+        cache.put(location(52.37686, 4.90065, "apple.banana.cherry"));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        Assert.assertNotNull(cache.get(52.37686, 4.90065));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertNull(cache.get(52.37686, 4.90065));
+        Assert.assertNull(cache.getByWords("apple.banana.cherry"));
+        Assert.assertEquals(cache.getExpirations(), 1);
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedTest() {
+        LocationCache cache = new LocationCache(32, 60000);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(location(-80 + i * 0.16, -170 + i * 0.34, "words." + i));
+        }
+        Assert.assertTrue(cache.size() <= 32);
+        Assert.assertEquals(cache.getEvictions(), 1000 - cache.size());
+
+        /* evicted words are forgotten, recent ones are kept */
+        Assert.assertNull(cache.getByWords("words.0"));
+        Assert.assertNotNull(cache.getByWords("words.999"));
+    }
+
+    @Test
+    public void smallCacheKeepsMaxSizeTest() {
+        for (int maxSize = 1; maxSize < 16; maxSize++) {
+            LocationCache cache = new LocationCache(maxSize, 60000);
+            for (int i = 0; i < 200; i++) {
+                cache.put(location(-80 + i * 0.8, -170 + i * 1.7, "words." + i));
+            }
+            Assert.assertEquals(cache.size(), maxSize);
+            Assert.assertNotNull(cache.getByWords("words.199"));
+        }
+    }
+
+    @Test
+    public void replacesCellTest() {
+        LocationCache cache = new LocationCache(100, 60000);
+        cache.put(location(52.37686, 4.90065, "apple.banana.cherry"));
+        cache.put(location(52.37686, 4.90065, "apple.banana.date"));
+
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertNull(cache.getByWords("apple.banana.cherry"));
+        Assert.assertEquals(cache.getByWords("apple.banana.date").getWords(), "apple.banana.date");
+    }
+
+    @Test
+    public void skipsElevatedLocationsTest() {
+        LocationCache cache = new LocationCache(100, 60000);
+        Location location = location(52.37686, 4.90065, "apple.banana.cherry");
+        cache.put(new Location(location.getPoint(), new Elevation(2), location.getBounds(), location.getGeohash(), location.getWords()));
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void toWordsFromCacheTest() throws UnlCoreException {
+        LocationCache cache = new LocationCache(100, 60000);
+        Location location = location(52.37686, 4.90065, "apple.banana.cherry");
+        cache.put(location);
+
+        /* hits never reach the location APIs */
+        Assert.assertSame(UnlCore.toWords("52.37686, 4.90065", "key", cache), location);
+        Assert.assertSame(UnlCore.toWords(location.getGeohash(), "key", cache), location);
+        Assert.assertSame(UnlCore.words("apple.banana.cherry", "key", cache), location);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidConfigurationTest() {
+        new LocationCache(0, 60000);
+    }
+}
@@ -0,0 +1,178 @@
+package unl.core;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LocationClientTest {
+    static final String LOCATION_JSON = "{\"location\":{\"lat\":52.37686,\"lon\":4.90065,\"elevation\":2,\"elevationType\":\"floor\","
+            + "\"bounds\":{\"ne\":{\"lat\":52.3769,\"lon\":4.9007},\"sw\":{\"lat\":52.3768,\"lon\":4.9006}},"
+            + "\"geohash\":\"u173zq37x\",\"words\":\"apple.banana.cherry\"}}";
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Set<Integer> clientPorts = new HashSet<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            synchronized (clientPorts) {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+            }
+            try {
+                String path = exchange.getRequestURI().getPath();
+                if (path.contains("slow")) {
+                    Thread.sleep(1000);
+                } else {
+                    Thread.sleep(100);
+                }
+                byte[] body = (path.contains("missing") ? "{}" : LOCATION_JSON).getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(path.contains("missing") ? 404 : 200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void toWordsAsyncTest() throws Exception {
+        try (LocationClient client = new LocationClient("key", baseUrl, 4, 1000, 1000)) {
+            Location location = client.toWordsAsync("u173zq37x").get();
+            Assert.assertEquals(location.getWords(), "apple.banana.cherry");
+            Assert.assertEquals(location.getGeohash(), "u173zq37x");
+            Assert.assertEquals(location.getElevation().getElevation(), 2);
+
+            Assert.assertEquals(client.wordsAsync("apple.banana.cherry").get().getGeohash(), "u173zq37x");
+            Assert.assertEquals(client.toWordsAsync("52.37686, 4.90065").get().getWords(), "apple.banana.cherry");
+        }
+    }
+
+    @Test
+    public void reusesConnectionsTest() throws Exception {
+        try (LocationClient client = new LocationClient("key", baseUrl, 1, 1000, 1000)) {
+            for (int i = 0; i < 10; i++) {
+                client.wordsAsync("apple.banana.cherry").get();
+            }
+        }
+        Assert.assertEquals(clientPorts.size(), 1);
+    }
+
+    @Test
+    public void limitsConcurrencyTest() throws Exception {
+        try (LocationClient client = new LocationClient("key", baseUrl, 3, 1000, 1000)) {
+            List<CompletableFuture<Location>> futures = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                futures.add(client.wordsAsync("apple.banana.cherry" + i));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        }
+        Assert.assertTrue(maxInFlight.get() <= 3);
+        Assert.assertTrue(maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void collapsesConcurrentLookupsTest() throws Exception {
+        try (LocationClient client = new LocationClient("key", baseUrl, 4, 1000, 1000)) {
+            List<CompletableFuture<Location>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(client.toWordsAsync(i % 2 == 0 ? "52.37686, 4.90065" : "52.37686,4.90065"));
+            }
+            for (CompletableFuture<Location> future : futures) {
+                Assert.assertEquals(future.get().getWords(), "apple.banana.cherry");
+            }
+            Assert.assertEquals(client.getLookups(), 20);
+            Assert.assertEquals(client.getCollapsedLookups(), 20 - requests.get());
+            Assert.assertEquals(requests.get(), 1);
+
+            /* completed lookups are not reused */
+            client.toWordsAsync("52.37686, 4.90065").get();
+            Assert.assertEquals(requests.get(), 2);
+        }
+    }
+
+    @Test
+    public void errorStatusTest() throws InterruptedException {
+        try (LocationClient client = new LocationClient("key", baseUrl, 1, 1000, 1000)) {
+            client.wordsAsync("missing").get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof UnlCoreException);
+            Assert.assertEquals(e.getCause().getMessage(), "There was a problem calling the location endpoint: 404");
+        }
+    }
+
+    @Test
+    public void readTimeoutTest() throws InterruptedException {
+        try (LocationClient client = new LocationClient("key", baseUrl, 1, 1000, 100)) {
+            client.wordsAsync("slow").get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof UnlCoreException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidLocationTest() {
+        try (LocationClient client = new LocationClient("key", baseUrl, 1, 1000, 1000)) {
+            client.toWordsAsync("not a location");
+        }
+    }
+
+    @Test
+    public void rejectsCallsAfterCloseTest() {
+        LocationClient client = new LocationClient("key", baseUrl, 1, 1000, 1000);
+        client.close();
+        client.close();
+
+        /* both lookups fail fast instead of reaching the stopped pool */
+        try {
+            client.toWordsAsync("52.37686,4.90065");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(e.getMessage(), "Client closed");
+        }
+        try {
+            client.wordsAsync("apple.banana.cherry");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(e.getMessage(), "Client closed");
+        }
+        Assert.assertEquals(requests.get(), 0);
+    }
+}
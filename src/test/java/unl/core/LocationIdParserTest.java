@@ -0,0 +1,103 @@
+package unl.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class LocationIdParserTest {
+    private static final Pattern LOCATION_ID_PATTERN = Pattern.compile("^[0123456789bcdefghjkmnpqrstuvwxyz]{3,16}[@#]?[0-9]{0,3}$");
+    private static final Pattern COORDINATES_PATTERN = Pattern.compile("^-?[0-9]{0,2}\\.?[0-9]{0,16},\\s?-?[0-9]{0,3}\\.?[0-9]{0,16}$");
+
+    @Test
+    public void parseTest() {
+        long parsed = LocationIdParser.parse("6gkzwgjz@5");
+        Assert.assertEquals(LocationIdParser.geohashLength(parsed), 8);
+        Assert.assertEquals(LocationIdParser.elevation(parsed), 5);
+        Assert.assertEquals(LocationIdParser.elevationType(parsed), "floor");
+
+        parsed = LocationIdParser.parse("6gkzwgjz#-87");
+        Assert.assertEquals(LocationIdParser.geohashLength(parsed), 8);
+        Assert.assertEquals(LocationIdParser.elevation(parsed), -87);
+        Assert.assertTrue(LocationIdParser.isHeightInCm(parsed));
+        Assert.assertEquals(LocationIdParser.elevationType(parsed), "heightincm");
+
+        parsed = LocationIdParser.parse("U4PRUY");
+        Assert.assertEquals(LocationIdParser.geohashLength(parsed), 6);
+        Assert.assertEquals(LocationIdParser.elevation(parsed), 0);
+        Assert.assertFalse(LocationIdParser.isHeightInCm(parsed));
+
+        Assert.assertEquals(LocationIdParser.elevation(LocationIdParser.parse("u4pruy@-2147483648")), Integer.MIN_VALUE);
+        Assert.assertEquals(LocationIdParser.elevation(LocationIdParser.parse("u4pruy@+2147483647")), Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void rejectsInvalidTest() {
+        /* empty, missing geohash or elevation, two separators, non base32 chars and overflows */
+        String[] invalid = {"", "@5", "u4pruy@", "u4pruy#-", "u4pruy@1@2", "u4pruy@1#2", "u4pruya", "u4pruy@1a",
+                "u4 pruy", "u4pruy@2147483648", "u4pruy@-2147483649"};
+        for (String locationId : invalid) {
+            Assert.assertEquals(locationId, LocationIdParser.parse(locationId), LocationIdParser.INVALID);
+        }
+    }
+
+    @Test
+    public void parseBytesTest() {
+        byte[] bytes = "GET /geohash/6gkzwgjz#87 HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+        long parsed = LocationIdParser.parse(bytes, 13, 11);
+        Assert.assertEquals(LocationIdParser.geohashLength(parsed), 8);
+        Assert.assertEquals(LocationIdParser.elevation(parsed), 87);
+        Assert.assertTrue(LocationIdParser.isHeightInCm(parsed));
+        Assert.assertEquals(LocationIdParser.parse(bytes, 13, 12), LocationIdParser.INVALID);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(13).limit(24);
+        Assert.assertEquals(LocationIdParser.parse(buffer), parsed);
+        Assert.assertEquals(buffer.position(), 13);
+
+        /* non ascii bytes are invalid */
+        Assert.assertEquals(LocationIdParser.parse(new byte[]{'u', (byte) 0xf5, '4'}, 0, 3), LocationIdParser.INVALID);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsInvalidRangeTest() {
+        LocationIdParser.parse(new byte[4], 2, 3);
+    }
+
+    @Test
+    public void matchesPatternsTest() {
+        Random random = new Random(19);
+        String locationIdChars = "0123456789bcdefghjkmnpqrstuvwxyzaiBC@#-. ";
+        String coordinatesChars = "0123456789-.,, \t";
+        for (int i = 0; i < 200000; i++) {
+            String location = randomString(random, locationIdChars, random.nextInt(22));
+            Assert.assertEquals(location, LocationIdParser.matchesLocationIdPattern(location), LOCATION_ID_PATTERN.matcher(location).matches());
+
+            location = randomString(random, coordinatesChars, random.nextInt(44));
+            Assert.assertEquals(location, LocationIdParser.matchesCoordinatesPattern(location), COORDINATES_PATTERN.matcher(location).matches());
+        }
+
+        /* valid inputs are rare among random strings, so check some directly */
+        String[] coordinates = {"52.37686, 4.90065", "52.37686,4.90065", "-1.5,-179.25", ",", "-.,\t-.",
+                "123456789012345678,1234567890123456789", "12.1234567890123456,123.1234567890123456", "123.4,5", "1,1234.5"};
+        for (String location : coordinates) {
+            Assert.assertEquals(location, LocationIdParser.matchesCoordinatesPattern(location), COORDINATES_PATTERN.matcher(location).matches());
+        }
+        String[] locationIds = {"u4pruy", "u4p", "u4", "u4pruy@3", "u4pruy#123", "u4pruy#1234", "u4pruy@", "u4pruy@-1",
+                "0123456789bcdefg", "0123456789bcdefgh", "0123456789bcdefg123", "0123456789bcdefg1234", "012345678912345678"};
+        for (String location : locationIds) {
+            Assert.assertEquals(location, LocationIdParser.matchesLocationIdPattern(location), LOCATION_ID_PATTERN.matcher(location).matches());
+        }
+    }
+
+    private static String randomString(Random random, String chars, int length) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            stringBuilder.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return stringBuilder.toString();
+    }
+}
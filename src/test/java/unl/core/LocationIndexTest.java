@@ -0,0 +1,134 @@
+package unl.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class LocationIndexTest {
+    private static final int ENTRIES = 20000;
+
+    private final double[] lats = new double[ENTRIES];
+    private final double[] lons = new double[ENTRIES];
+    private final List<Integer> values = new ArrayList<>();
+    private final LocationIndex<Integer> index = new LocationIndex<>();
+
+    public LocationIndexTest() {
+        Random random = new Random(10);
+        for (int i = 0; i < ENTRIES; i++) {
+            lats[i] = 52.3 + random.nextDouble() * 0.1;
+            lons[i] = 4.85 + random.nextDouble() * 0.1;
+            values.add(i);
+        }
+        index.putAll(lats, lons, values);
+    }
+
+    @Test
+    public void queryCellTest() {
+        Assert.assertEquals(index.size(), ENTRIES);
+
+        /* returns the entries of a cell, at any precision */
+        for (int i = 0; i < 200; i++) {
+            for (int precision = 4; precision <= 12; precision += 2) {
+                long cell = UnlCore.encodeToLong(lats[i], lons[i], precision);
+                List<Integer> expected = new ArrayList<>();
+                for (int n = 0; n < ENTRIES; n++) {
+                    if (UnlCore.encodeToLong(lats[n], lons[n], precision) == cell) {
+                        expected.add(n);
+                    }
+                }
+                List<Integer> found = index.query(cell);
+                Assert.assertEquals(found.size(), index.count(cell));
+                Collections.sort(found);
+                Assert.assertEquals(found, expected);
+            }
+        }
+
+        /* returns nothing outside the indexed area */
+        Assert.assertEquals(index.query("s"), Collections.emptyList());
+        Assert.assertEquals(index.query("zzzzzzzzzzzz"), Collections.emptyList());
+    }
+
+    @Test
+    public void queryWithNeighboursTest() {
+        long cell = UnlCore.encodeToLong(lats[0], lons[0], 7);
+        long[] neighbours = UnlCore.neighbours(cell);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int n = 0; n < ENTRIES; n++) {
+            long key = UnlCore.encodeToLong(lats[n], lons[n], 7);
+            boolean neighbour = key == cell;
+            for (long other : neighbours) {
+                neighbour |= key == other;
+            }
+            if (neighbour) {
+                expected.add(n);
+            }
+        }
+        List<Integer> found = index.queryWithNeighbours(cell);
+        Collections.sort(found);
+        Assert.assertEquals(found, expected);
+    }
+
+    @Test
+    public void queryBoundsTest() {
+        Random random = new Random(12);
+        for (int i = 0; i < 50; i++) {
+            double s = 52.3 + random.nextDouble() * 0.08;
+            double w = 4.85 + random.nextDouble() * 0.08;
+            Bounds bounds = new Bounds(s + random.nextDouble() * 0.02, w + random.nextDouble() * 0.02, s, w);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int n = 0; n < ENTRIES; n++) {
+                if (lats[n] >= bounds.getS() && lats[n] < bounds.getN() && lons[n] >= bounds.getW() && lons[n] < bounds.getE()) {
+                    expected.add(n);
+                }
+            }
+            List<Integer> found = index.query(bounds);
+            Collections.sort(found);
+            Assert.assertEquals(found, expected);
+        }
+    }
+
+    @Test
+    public void updateTest() {
+        LocationIndex<String> index = new LocationIndex<>();
+        index.put(52.37686, 4.90065, "first");
+        index.put(52.37686, 4.90065, "second");
+        index.put(-25.38262, -49.26561, "curitiba");
+        Assert.assertEquals(index.size(), 3);
+
+        /* keeps entries of the same point in insertion order */
+        Assert.assertEquals(index.query(UnlCore.encodeToLong(52.37686, 4.90065, 9)), Arrays.asList("first", "second"));
+        Assert.assertEquals(index.query("6gkzwgjz"), Collections.singletonList("curitiba"));
+
+        /* removes matching entries */
+        Assert.assertEquals(index.removeIf(value -> value.startsWith("f")), 1);
+        Assert.assertEquals(index.removeIf(value -> value.startsWith("f")), 0);
+        Assert.assertEquals(index.query(UnlCore.encodeToLong(52.37686, 4.90065, 9)), Collections.singletonList("second"));
+        Assert.assertEquals(index.size(), 2);
+    }
+
+    @Test
+    public void concurrentReadsTest() throws InterruptedException {
+        LocationIndex<Integer> index = new LocationIndex<>();
+        long cell = UnlCore.encodeToLong(52.35, 4.9, 3);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 100; i++) {
+                index.putAll(new double[]{52.35, 52.36}, new double[]{4.9, 4.91}, Arrays.asList(i, i));
+            }
+        });
+        writer.start();
+
+        /* readers always see whole batches */
+        while (writer.isAlive()) {
+            Assert.assertEquals(index.count(cell) % 2, 0);
+        }
+        writer.join();
+        Assert.assertEquals(index.count(cell), 200);
+    }
+}
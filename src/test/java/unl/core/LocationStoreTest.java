@@ -0,0 +1,213 @@
+package unl.core;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LocationStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Location location(double lat, double lon, String words) {
+        String geohash = UnlCore.encode(lat, lon, 9);
+        return new Location(new Point(lat, lon), new Elevation(0), UnlCore.bounds(geohash), geohash, words);
+    }
+
+    @Test
+    public void persistsLocationsTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("locations.store");
+        Location location = location(52.37686, 4.90065, "apple.banana.cherry");
+        try (LocationStore store = LocationStore.open(path)) {
+            store.put(location);
+            store.put(location(-33.8688, 151.2093, "kiwi.lemon.mango"));
+            Assert.assertEquals(store.size(), 2);
+        }
+
+        /* a reopened store knows the cells without decoding them up front */
+        try (LocationStore store = LocationStore.open(path)) {
+            Assert.assertEquals(store.size(), 2);
+            Assert.assertEquals(store.getPrecision(), 9);
+
+            Location stored = store.get(52.37686, 4.90065);
+            Assert.assertEquals(stored.getWords(), "apple.banana.cherry");
+            Assert.assertEquals(stored.getGeohash(), location.getGeohash());
+            Assert.assertEquals(stored.getPoint().getLat(), 52.37686, 0);
+            Assert.assertEquals(stored.getBounds().getN(), location.getBounds().getN(), 0);
+            Assert.assertEquals(stored.getElevation().getElevationType(), "floor");
+
+            Assert.assertEquals(store.getByWords("kiwi.lemon.mango").getPoint().getLon(), 151.2093, 0);
+            Assert.assertNull(store.getByWords("apple.banana.date"));
+            Assert.assertNull(store.get(0, 0));
+        }
+    }
+
+    @Test
+    public void compactsStaleRecordsTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("locations.store");
+        try (LocationStore store = LocationStore.open(path)) {
+            store.put(location(-33.8688, 151.2093, "kiwi.lemon.mango"));
+            store.put(location(52.37686, 4.90065, "words.0"));
+            store.put(location(52.37686, 4.90065, "words.1"));
+            store.put(location(52.37686, 4.90065, "words.2"));
+            Assert.assertEquals(store.size(), 2);
+            Assert.assertEquals(store.getStaleRecords(), 2);
+            long staleSize = Files.size(path);
+
+            /* a put making stale records outnumber the live ones compacts the store */
+            store.put(location(52.37686, 4.90065, "words.3"));
+            Assert.assertEquals(store.getStaleRecords(), 0);
+            Assert.assertTrue(Files.size(path) < staleSize);
+            Assert.assertNull(store.getByWords("words.0"));
+
+            /* however many times a cell is stored */
+            for (int i = 4; i < 1000; i++) {
+                store.put(location(52.37686, 4.90065, "words." + i));
+                Assert.assertTrue(store.getStaleRecords() <= store.size());
+            }
+            Assert.assertTrue(Files.size(path) < staleSize * 2);
+        }
+
+        try (LocationStore store = LocationStore.open(path)) {
+            Assert.assertEquals(store.get(52.37686, 4.90065).getWords(), "words.999");
+            Assert.assertEquals(store.getByWords("kiwi.lemon.mango").getPoint().getLat(), -33.8688, 0);
+        }
+    }
+
+    @Test
+    public void discardsTruncatedRecordTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("locations.store");
+        try (LocationStore store = LocationStore.open(path)) {
+            store.put(location(52.37686, 4.90065, "apple.banana.cherry"));
+            store.put(location(-33.8688, 151.2093, "kiwi.lemon.mango"));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        try (LocationStore store = LocationStore.open(path)) {
+            Assert.assertEquals(store.size(), 1);
+            Assert.assertNull(store.get(-33.8688, 151.2093));
+
+            /* records appended after the repair are read back */
+            store.put(location(-33.8688, 151.2093, "kiwi.lemon.mango"));
+            Assert.assertEquals(store.getByWords("kiwi.lemon.mango").getPoint().getLon(), 151.2093, 0);
+        }
+    }
+
+    @Test
+    public void warmCacheTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("locations.store");
+        try (LocationStore store = LocationStore.open(path)) {
+            new LocationCache(100, 60000, store).put(location(52.37686, 4.90065, "apple.banana.cherry"));
+        }
+
+        /* a new cache over the same store hits without a call */
+        try (LocationStore store = LocationStore.open(path)) {
+            LocationCache cache = new LocationCache(100, 60000, store);
+            Assert.assertEquals(cache.size(), 0);
+            Assert.assertEquals(cache.getByWords("apple.banana.cherry").getGeohash(), UnlCore.encode(52.37686, 4.90065, 9));
+            Assert.assertEquals(cache.size(), 1);
+            Assert.assertNotNull(cache.get(52.37686, 4.90065));
+            Assert.assertEquals(cache.getHits(), 2);
+        }
+    }
+
+    @Test
+    public void wordsWithSameHashTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("locations.store");
+        Assert.assertEquals("Aa.banana.cherry".hashCode(), "BB.banana.cherry".hashCode());
+        try (LocationStore store = LocationStore.open(path)) {
+            store.put(location(52.37686, 4.90065, "Aa.banana.cherry"));
+            store.put(location(-33.8688, 151.2093, "BB.banana.cherry"));
+            Assert.assertEquals(store.getByWords("Aa.banana.cherry").getPoint().getLat(), 52.37686, 0);
+            Assert.assertEquals(store.getByWords("BB.banana.cherry").getPoint().getLat(), -33.8688, 0);
+
+            /* superseded words are forgotten, the other words of the hash are kept */
+            store.put(location(52.37686, 4.90065, "apple.banana.cherry"));
+            Assert.assertNull(store.getByWords("Aa.banana.cherry"));
+            Assert.assertNotNull(store.getByWords("BB.banana.cherry"));
+        }
+        try (LocationStore store = LocationStore.open(path)) {
+            Assert.assertNull(store.getByWords("Aa.banana.cherry"));
+            Assert.assertEquals(store.getByWords("BB.banana.cherry").getPoint().getLon(), 151.2093, 0);
+            Assert.assertEquals(store.getByWords("apple.banana.cherry").getPoint().getLon(), 4.90065, 0);
+        }
+    }
+
+    @Test
+    public void rejectsClosedStoreTest() throws IOException {
+        LocationStore store = LocationStore.open(folder.getRoot().toPath().resolve("locations.store"));
+        store.close();
+        /* closing twice has no effect */
+        store.close();
+        try {
+            store.get(52.37686, 4.90065);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(e.getMessage(), "Store closed");
+        }
+        try {
+            store.put(location(52.37686, 4.90065, "apple.banana.cherry"));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+        try {
+            store.size();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void expiresStoredLocationsTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("locations.store");
+        AtomicLong wallClock = new AtomicLong(1000000);
+        try (LocationStore store = LocationStore.open(path, 9, wallClock::get)) {
+            new LocationCache(100, 60000, store).put(location(52.37686, 4.90065, "apple.banana.cherry"));
+            wallClock.addAndGet(30000);
+            Assert.assertEquals(store.get(UnlCore.fromLocationId(UnlCore.encode(52.37686, 4.90065, 9)), 60000).ageMillis, 30000);
+        }
+
+        /* the write time outlives the process, and old records are misses of a cache over the store */
+        try (LocationStore store = LocationStore.open(path, 9, wallClock::get)) {
+            AtomicLong clock = new AtomicLong();
+            LocationCache cache = new LocationCache(100, 60000, 9, store, clock::get);
+            Assert.assertNotNull(cache.get(52.37686, 4.90065));
+
+            /* and the location read from the store is only kept in memory for the rest of its time to live */
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+            wallClock.addAndGet(31000);
+            Assert.assertNull(cache.get(52.37686, 4.90065));
+            Assert.assertNull(cache.getByWords("apple.banana.cherry"));
+            Assert.assertEquals(cache.getExpirations(), 1);
+
+            /* a record written since is a hit */
+            store.put(location(52.37686, 4.90065, "apple.banana.cherry"));
+            Assert.assertNotNull(cache.getByWords("apple.banana.cherry"));
+
+            /* the store itself keeps records of any age */
+            wallClock.addAndGet(1000000);
+            Assert.assertNotNull(store.get(52.37686, 4.90065));
+            Assert.assertNotNull(store.getByWords("apple.banana.cherry"));
+            Assert.assertNull(store.getByWords("apple.banana.cherry", 60000));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidFileTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("locations.store");
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        LocationStore.open(path);
+    }
+}
@@ -0,0 +1,102 @@
+package unl.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LocationTypeAdapterTest {
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapter(Location.class, new LocationTypeAdapter()).create();
+
+    @Test
+    public void readsResponseTest() {
+        Location location = GSON.fromJson(LocationClientTest.LOCATION_JSON, Location.class);
+        Assert.assertEquals(location.getPoint().getLat(), 52.37686, 0);
+        Assert.assertEquals(location.getPoint().getLon(), 4.90065, 0);
+        Assert.assertEquals(location.getElevation().getElevation(), 2);
+        Assert.assertEquals(location.getElevation().getElevationType(), "floor");
+        Assert.assertEquals(location.getBounds().getN(), 52.3769, 0);
+        Assert.assertEquals(location.getBounds().getE(), 4.9007, 0);
+        Assert.assertEquals(location.getBounds().getS(), 52.3768, 0);
+        Assert.assertEquals(location.getBounds().getW(), 4.9006, 0);
+        Assert.assertEquals(location.getGeohash(), "u173zq37x");
+        Assert.assertEquals(location.getWords(), "apple.banana.cherry");
+    }
+
+    @Test
+    public void readsBareLocationTest() {
+        /* unknown members are skipped and a missing elevation is the ground floor */
+        String json = "{\"words\":\"apple.banana.cherry\",\"extra\":{\"a\":[1,2]},\"lat\":1.5,\"lon\":-2.5,"
+                + "\"bounds\":{\"sw\":{\"lat\":1,\"lon\":-3},\"ne\":{\"lat\":2,\"lon\":-2}},\"geohash\":\"s00\"}";
+        Location location = GSON.fromJson(json, Location.class);
+        Assert.assertEquals(location.getPoint().getLon(), -2.5, 0);
+        Assert.assertEquals(location.getElevation().getElevation(), 0);
+        Assert.assertEquals(location.getBounds().getW(), -3, 0);
+        Assert.assertEquals(location.getGeohash(), "s00");
+    }
+
+    @Test
+    public void writesResponseTest() {
+        Location location = GSON.fromJson(LocationClientTest.LOCATION_JSON, Location.class);
+        Assert.assertEquals(GSON.toJson(location, Location.class), LocationClientTest.LOCATION_JSON);
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void rejectsIncompleteLocationTest() {
+        GSON.fromJson("{\"location\":{\"lat\":1.5,\"lon\":-2.5,\"words\":\"apple.banana.cherry\"}}", Location.class);
+    }
+
+    @Test
+    public void rejectsWrongTypesTest() throws IOException {
+        LocationTypeAdapter adapter = new LocationTypeAdapter();
+        String[] members = {"\"lat\":null", "\"lat\":\"x\"", "\"elevation\":\"x\"", "\"elevation\":1.5",
+                "\"words\":null", "\"bounds\":{\"ne\":{\"lat\":null,\"lon\":-2}}"};
+        for (String member : members) {
+            try {
+                adapter.fromJson("{\"location\":{" + member + "}}");
+                Assert.fail(member);
+            } catch (JsonParseException e) {
+                Assert.assertEquals(e.getMessage(), "Invalid location");
+            }
+        }
+    }
+
+    @Test
+    public void readLocationsTest() throws IOException {
+        String ndjson = LocationClientTest.LOCATION_JSON + "\n"
+                + "{\"lat\":1.5,\"lon\":-2.5,\"bounds\":{\"ne\":{\"lat\":2,\"lon\":-2},\"sw\":{\"lat\":1,\"lon\":-3}},"
+                + "\"geohash\":\"s00\",\"words\":\"kiwi.lemon.mango\"}\n"
+                + "\n"
+                + LocationClientTest.LOCATION_JSON + "\n";
+        List<String> words = new ArrayList<>();
+        long count = UnlCore.readLocations(new StringReader(ndjson), location -> words.add(location.getWords()));
+
+        Assert.assertEquals(count, 3);
+        Assert.assertEquals(words.get(0), "apple.banana.cherry");
+        Assert.assertEquals(words.get(1), "kiwi.lemon.mango");
+        Assert.assertEquals(words.get(2), "apple.banana.cherry");
+
+        /* an empty stream has no locations */
+        Assert.assertEquals(UnlCore.readLocations(new StringReader(""), location -> Assert.fail()), 0);
+    }
+
+    @Test
+    public void readLocationDrainsStreamTest() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream((LocationClientTest.LOCATION_JSON + "\n\n").getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(UnlCore.readLocation(inputStream).getWords(), "apple.banana.cherry");
+        Assert.assertEquals(inputStream.read(), -1);
+
+        /* an empty body is no location */
+        Assert.assertNull(UnlCore.readLocation(new ByteArrayInputStream(new byte[0])));
+    }
+}
@@ -0,0 +1,98 @@
+package unl.core;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class MappedLocationIndexTest {
+    private static final int ENTRIES = 5000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void queryTest() throws IOException {
+        Random random = new Random(13);
+        double[] lats = new double[ENTRIES];
+        double[] lons = new double[ENTRIES];
+        List<byte[]> payloads = new ArrayList<>();
+        LocationIndex<String> expected = new LocationIndex<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            lats[i] = -25.5 + random.nextDouble() * 0.2;
+            lons[i] = -49.4 + random.nextDouble() * 0.2;
+            payloads.add(("poi-" + i).getBytes(StandardCharsets.UTF_8));
+            expected.put(lats[i], lons[i], "poi-" + i);
+        }
+
+        Path path = folder.getRoot().toPath().resolve("pois.idx");
+        MappedLocationIndex.write(path, lats, lons, payloads);
+        MappedLocationIndex index = MappedLocationIndex.open(path);
+        Assert.assertEquals(index.size(), ENTRIES);
+
+        /* matches the in-memory index */
+        for (int i = 0; i < 100; i++) {
+            for (int precision = 5; precision <= 12; precision++) {
+                long cell = UnlCore.encodeToLong(lats[i], lons[i], precision);
+                Assert.assertEquals(strings(index.query(cell)), expected.query(cell));
+                Assert.assertEquals(index.count(cell), expected.count(cell));
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            double s = -25.5 + random.nextDouble() * 0.15;
+            double w = -49.4 + random.nextDouble() * 0.15;
+            Bounds bounds = new Bounds(s + 0.05, w + 0.05, s, w);
+            Assert.assertEquals(strings(index.query(bounds)), expected.query(bounds));
+        }
+        Assert.assertEquals(index.query("u").size(), 0);
+    }
+
+    @Test
+    public void emptyIndexTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("empty.idx");
+        MappedLocationIndex.write(path, new double[0], new double[0], new ArrayList<>());
+        MappedLocationIndex index = MappedLocationIndex.open(path);
+        Assert.assertEquals(index.size(), 0);
+        Assert.assertEquals(index.query("zzzzzzzzzzzz").size(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void openRejectsInvalidFileTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("invalid.idx");
+        Files.write(path, "not an index file".getBytes(StandardCharsets.UTF_8));
+        MappedLocationIndex.open(path);
+    }
+
+    @Test
+    public void writeRemovesTemporaryFileOnFailureTest() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("blocked.idx");
+        Files.createDirectories(path.resolve("child"));
+
+        /* the destination is a non-empty directory, so the final move fails */
+        try {
+            MappedLocationIndex.write(path, new double[]{-25.5}, new double[]{-49.4},
+                    Collections.singletonList("poi".getBytes(StandardCharsets.UTF_8)));
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertFalse(Files.exists(path.resolveSibling("blocked.idx.tmp")));
+        }
+    }
+
+    private static List<String> strings(List<ByteBuffer> payloads) {
+        List<String> strings = new ArrayList<>();
+        for (ByteBuffer payload : payloads) {
+            strings.add(StandardCharsets.UTF_8.decode(payload).toString());
+        }
+        return strings;
+    }
+}
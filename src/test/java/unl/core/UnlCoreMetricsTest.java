@@ -0,0 +1,168 @@
+package unl.core;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+public class UnlCoreMetricsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String baseUrl;
+    private final UnlCoreMetrics metrics = new UnlCoreMetrics();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            boolean missing = exchange.getRequestURI().getPath().contains("missing");
+            byte[] body = (missing ? "{}" : LocationClientTest.LOCATION_JSON).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(missing ? 404 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        UnlCore.setListener(metrics);
+    }
+
+    @After
+    public void tearDown() {
+        UnlCore.setListener(null);
+        server.stop(0);
+    }
+
+    @Test
+    public void countsEncodesAndDecodesTest() {
+        UnlCore.encode(52.205, 0.119, 7, new Elevation(9, "floor"));
+        UnlCore.encode(52.205, 0.119, 7);
+        /* the precision refinement counts as a single encode */
+        UnlCore.encode(57.64, 10.41);
+        UnlCore.encodeInto(52.205, 0.119, 7, UnlCore.DEFAULT_ELEVATION, new byte[16], 0);
+        UnlCore.encodeInto(52.205, 0.119, 7, UnlCore.DEFAULT_ELEVATION, ByteBuffer.allocate(16));
+        Assert.assertEquals(metrics.getEncodes(), 5);
+
+        UnlCore.decode("u120fxw@3");
+        UnlCore.decodeInto("u120fxw", new MutableCell());
+        UnlCore.decodeInto("u120fxw#87", new double[6]);
+        UnlCore.bounds("u120fxw");
+        Assert.assertEquals(metrics.getDecodes(), 3);
+
+        /* a removed listener sees nothing */
+        UnlCore.setListener(null);
+        Assert.assertSame(UnlCore.getListener(), UnlCoreListener.NOOP);
+        UnlCore.encode(52.205, 0.119, 7);
+        Assert.assertEquals(metrics.getEncodes(), 5);
+    }
+
+    @Test
+    public void recordsEndpointCallsTest() throws IOException, UnlCoreException {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(LocationService.callEndpoint(baseUrl + "geohash/u173zq37x", "key", 1000, 1000), LocationClientTest.LOCATION_JSON);
+        }
+        try {
+            LocationService.callEndpoint(baseUrl + "missing", "key", 1000, 1000);
+            Assert.fail();
+        } catch (UnlCoreException e) {
+            /* expected */
+        }
+
+        /* a refused connection has no status */
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        try {
+            LocationService.callEndpoint("http://127.0.0.1:" + closedPort + "/", "key", 1000, 1000);
+            Assert.fail();
+        } catch (UnlCoreException e) {
+            /* expected */
+        }
+
+        Map<Integer, Long> statusCounts = metrics.getStatusCounts();
+        Assert.assertEquals(statusCounts.size(), 3);
+        Assert.assertEquals(statusCounts.get(200).longValue(), 3);
+        Assert.assertEquals(statusCounts.get(404).longValue(), 1);
+        Assert.assertEquals(statusCounts.get(-1).longValue(), 1);
+        Assert.assertEquals(metrics.getCalls(), 5);
+        Assert.assertEquals(metrics.getFailedCalls(), 2);
+
+        int bodyLength = LocationClientTest.LOCATION_JSON.length();
+        Assert.assertEquals(metrics.getTotalResponseBytes(), 3 * bodyLength + 2);
+        Assert.assertTrue(metrics.getResponseBytes(1) >= bodyLength);
+        Assert.assertTrue(metrics.getResponseBytes(1) <= bodyLength * 9 / 8);
+        Assert.assertTrue(metrics.getCallLatencyNanos(0.5) > 0);
+        Assert.assertTrue(metrics.getCallLatencyNanos(0.5) <= metrics.getCallLatencyNanos(1));
+        Assert.assertTrue(metrics.getTotalCallNanos() > 0);
+    }
+
+    @Test
+    public void recordsBulkEncodesTest() throws IOException {
+        Path input = folder.getRoot().toPath().resolve("points.csv");
+        Files.write(input, "52.205,0.119\n57.64,10.41\n".getBytes(StandardCharsets.US_ASCII));
+        BulkEncoder.encode(input, folder.getRoot().toPath().resolve("ids.csv"), 9, false);
+
+        Assert.assertEquals(metrics.getBulkEncodes(), 1);
+        Assert.assertEquals(metrics.getBulkPoints(), 2);
+        Assert.assertEquals(metrics.getBulkBytes(), 25);
+        Assert.assertTrue(metrics.getTotalBulkNanos() > 0);
+    }
+
+    @Test
+    public void histogramTest() {
+        UnlCoreMetrics.Histogram histogram = new UnlCoreMetrics.Histogram();
+        Assert.assertEquals(histogram.getQuantile(0.5), 0);
+
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        Assert.assertEquals(histogram.getCount(), 1000);
+        Assert.assertEquals(histogram.getSum(), 500500000L);
+        /* quantiles are rounded up by at most one bucket, an eighth of their power of two */
+        double[] quantiles = {0.01, 0.5, 0.9, 0.99, 1};
+        for (double quantile : quantiles) {
+            long expected = (long) (quantile * 1000) * 1000;
+            long actual = histogram.getQuantile(quantile);
+            Assert.assertTrue(quantile + ": " + actual, actual >= expected && actual <= expected * 9 / 8);
+        }
+
+        /* every value falls in the bucket bounding it */
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = UnlCoreMetrics.Histogram.bucket(value);
+            Assert.assertTrue(value + "", value <= UnlCoreMetrics.Histogram.upperBound(bucket));
+            Assert.assertTrue(value + "", bucket == 0 || value > UnlCoreMetrics.Histogram.upperBound(bucket - 1));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidQuantileTest() {
+        metrics.getCallLatencyNanos(1.5);
+    }
+
+    @Test
+    public void composesListenersTest() {
+        UnlCoreMetrics other = new UnlCoreMetrics();
+        UnlCore.setListener(UnlCoreListener.of(metrics, other));
+        UnlCore.decode("u120fxw");
+        Assert.assertEquals(metrics.getDecodes(), 1);
+        Assert.assertEquals(other.getDecodes(), 1);
+    }
+}
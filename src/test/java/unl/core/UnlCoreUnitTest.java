@@ -3,6 +3,19 @@ package unl.core;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
 import static unl.core.UnlCore.DEFAULT_ELEVATION;
 
 public class UnlCoreUnitTest {
@@ -108,6 +121,15 @@ public class UnlCoreUnitTest {
         Assert.assertEquals(UnlCore.appendElevation("6gkzwgjz", new Elevation(87, "heightincm")),
                 "6gkzwgjz#87"
         );
+
+        /* elevation types read at runtime are compared by value */
+        String elevationType = new StringBuilder("heightin").append("cm").toString();
+        Assert.assertEquals(UnlCore.appendElevation("6gkzwgjz", new Elevation(87, elevationType)),
+                "6gkzwgjz#87"
+        );
+        Assert.assertEquals(UnlCore.encode(52.205, 0.119, 7, new Elevation(87, elevationType)),
+                "u120fxw#87"
+        );
     }
 
     @Test
@@ -129,6 +151,17 @@ public class UnlCoreUnitTest {
         );
     }
 
+    @Test
+    public void lookupKeyTest() {
+        /* coordinates with or without spaces are the same lookup */
+        Assert.assertEquals(UnlCore.lookupKey("geohash/52.205, 0.119"), "geohash/52.205,0.119");
+        Assert.assertEquals(UnlCore.lookupKey(" \t52.205,\n\u000b0.119\f\r"), "52.205,0.119");
+
+        /* a path without whitespace is its own key */
+        String path = "geohash/u120fxw";
+        Assert.assertSame(UnlCore.lookupKey(path), path);
+    }
+
     @Test
     public void adjacentTest() {
         /* adjacent north */
@@ -181,4 +214,453 @@ public class UnlCoreUnitTest {
                 ), 12
         ).size(), 1481);
     }
+
+    @Test
+    public void gridLinesStreamingTest() {
+        Bounds bounds = new Bounds(46.77227194246396, 23.59560827603795, 46.77210936378606, 23.595436614661565);
+
+        /* streams and counts the same lines as gridLines */
+        for (int precision = 7; precision <= 12; precision++) {
+            List<double[][]> expected = UnlCore.gridLines(bounds, precision);
+            List<double[][]> lines = new ArrayList<>();
+            UnlCore.gridLines(bounds, precision, (startLon, startLat, endLon, endLat) ->
+                    lines.add(new double[][]{{startLon, startLat}, {endLon, endLat}}));
+            Assert.assertArrayEquals(lines.toArray(), expected.toArray());
+            Assert.assertEquals(UnlCore.gridLineCount(bounds, precision), expected.size());
+
+            /* fills arrays with four doubles per line */
+            double[] dst = new double[4 * expected.size()];
+            Assert.assertEquals(UnlCore.gridLines(bounds, precision, dst), expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertArrayEquals(Arrays.copyOfRange(dst, 4 * i, 4 * i + 4), new double[]{
+                        expected.get(i)[0][0], expected.get(i)[0][1], expected.get(i)[1][0], expected.get(i)[1][1]}, 0);
+            }
+        }
+
+        /* coarsens the grid to the line budget */
+        AtomicInteger count = new AtomicInteger();
+        Assert.assertEquals(UnlCore.gridLines(bounds, 12, 500, (startLon, startLat, endLon, endLat) -> count.incrementAndGet()), 11);
+        Assert.assertEquals(count.get(), UnlCore.gridLineCount(bounds, 11));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gridLinesRejectsSmallBufferTest() {
+        UnlCore.gridLines(new Bounds(46.77227194246396, 23.59560827603795, 46.77210936378606, 23.595436614661565), 12, new double[100]);
+    }
+
+    @Test
+    public void locationIdKeyTest() {
+        /* encodes Jutland to key */
+        Assert.assertEquals(UnlCore.toLocationId(UnlCore.encodeToLong(57.648, 10.41, 6)), "u4pruy");
+        /* encodes Curitiba to key */
+        Assert.assertEquals(UnlCore.toLocationId(UnlCore.encodeToLong(-25.38262, -49.26561, 8)), "6gkzwgjz");
+        /* matches locationId with max key precision */
+        Assert.assertEquals(UnlCore.encodeToLong(37.25, 123.75, 12), UnlCore.fromLocationId("wy85bj0hbp21"));
+
+        /* retrieves precision of key */
+        Assert.assertEquals(UnlCore.precisionOf(UnlCore.fromLocationId("u4pruy")), 6);
+
+        /* retrieves bounds of key */
+        Assert.assertEquals(UnlCore.boundsOf(UnlCore.fromLocationId("6gkzwgjz")), UnlCore.bounds("6gkzwgjz"));
+
+        /* round trips against string encoding */
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            int precision = 1 + random.nextInt(UnlCore.MAX_KEY_PRECISION);
+            String locationId = UnlCore.encode(lat, lon, precision);
+            long key = UnlCore.encodeToLong(lat, lon, precision);
+
+            Assert.assertEquals(UnlCore.toLocationId(key), locationId);
+            Assert.assertEquals(UnlCore.fromLocationId(locationId), key);
+            Assert.assertEquals(UnlCore.boundsOf(key), UnlCore.bounds(locationId));
+        }
+
+        /* orders keys like locationIds of the same precision */
+        Assert.assertTrue(UnlCore.fromLocationId("ezzz") < UnlCore.fromLocationId("gbpb"));
+        /* keeps descendants next to their ancestor */
+        Assert.assertTrue(UnlCore.fromLocationId("u4") < UnlCore.fromLocationId("u4z"));
+        Assert.assertTrue(UnlCore.fromLocationId("u4z") < UnlCore.fromLocationId("u5"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void locationIdKeyRejectsElevationTest() {
+        UnlCore.fromLocationId("u4pruy@5");
+    }
+
+    @Test
+    public void encodeMatchesBisectionTest() {
+        /* precisions above the key precision are bisected bit by bit: their prefix must match */
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+
+            Assert.assertEquals(UnlCore.encode(lat, lon, 12), UnlCore.encode(lat, lon, 13).substring(0, 12));
+        }
+
+        /* cell edges, poles and antimeridian */
+        for (int n = 0; n <= 30; n++) {
+            for (int k = 0; k <= 8; k++) {
+                double lat = -90 + k * (180.0 / (1L << n)) % 180;
+                double lon = -180 + k * (360.0 / (1L << n)) % 360;
+                for (double delta : new double[]{0, Math.ulp(lat), -Math.ulp(lat)}) {
+                    Assert.assertEquals(UnlCore.encode(lat + delta, lon + delta, 12),
+                            UnlCore.encode(lat + delta, lon + delta, 13).substring(0, 12));
+                }
+            }
+        }
+        Assert.assertEquals(UnlCore.encode(90, 180, 12), UnlCore.encode(90, 180, 13).substring(0, 12));
+        Assert.assertEquals(UnlCore.encode(-90, -180, 12), UnlCore.encode(-90, -180, 13).substring(0, 12));
+        Assert.assertEquals(UnlCore.encode(91, 181, 12), UnlCore.encode(91, 181, 13).substring(0, 12));
+    }
+
+    @Test
+    public void encodeIntoTest() {
+        /* encodes Cambridge floor 9 into bytes */
+        byte[] bytes = new byte[16];
+        Assert.assertEquals(UnlCore.encodeInto(52.205, 0.119, 7, new Elevation(9, "floor"), bytes, 2), 9);
+        Assert.assertEquals(new String(bytes, 2, 9, StandardCharsets.US_ASCII), "u120fxw@9");
+
+        /* writes what encode returns, for any precision and elevation */
+        Random random = new Random(20);
+        ByteBuffer heap = ByteBuffer.allocate(64);
+        ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        int[] elevations = {0, 1, -1, 87, -2147483648, 2147483647};
+        for (int i = 0; i < 10000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            int precision = 1 + random.nextInt(20);
+            Elevation elevation = new Elevation(elevations[random.nextInt(elevations.length)], random.nextBoolean() ? "floor" : "heightincm");
+            String expected = UnlCore.encode(lat, lon, precision, elevation);
+
+            int length = UnlCore.encodeInto(lat, lon, precision, elevation, bytes = new byte[64], 0);
+            Assert.assertEquals(new String(bytes, 0, length, StandardCharsets.US_ASCII), expected);
+
+            for (ByteBuffer buffer : new ByteBuffer[]{heap, direct}) {
+                buffer.clear().position(3);
+                Assert.assertEquals(UnlCore.encodeInto(lat, lon, precision, elevation, buffer), expected.length());
+                Assert.assertEquals(buffer.position(), 3 + expected.length());
+                buffer.flip().position(3);
+                byte[] written = new byte[buffer.remaining()];
+                buffer.get(written);
+                Assert.assertEquals(new String(written, StandardCharsets.US_ASCII), expected);
+            }
+        }
+    }
+
+    @Test
+    public void encodeIntoRejectsSmallDestinationTest() {
+        try {
+            UnlCore.encodeInto(52.205, 0.119, 7, new Elevation(9, "floor"), new byte[9], 1);
+            Assert.fail();
+        } catch (IndexOutOfBoundsException e) {
+            /* nothing is written past the array */
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        try {
+            UnlCore.encodeInto(52.205, 0.119, 7, new Elevation(9, "floor"), buffer);
+            Assert.fail();
+        } catch (BufferOverflowException e) {
+            Assert.assertEquals(buffer.position(), 0);
+        }
+    }
+
+    @Test
+    public void decodeIntoTest() {
+        /* decodes Jutland floor 3 into a mutable cell */
+        MutableCell cell = UnlCore.decodeInto("u4pruy@3", new MutableCell());
+        Assert.assertEquals(cell.toPointWithElevation(), UnlCore.decode("u4pruy@3"));
+
+        /* decodes Curitiba heightincm 90 into a reused mutable cell */
+        Assert.assertEquals(UnlCore.decodeInto("6gkzwgjz#90", cell).toPointWithElevation(), UnlCore.decode("6gkzwgjz#90"));
+
+        /* decodes Curitiba into an array */
+        double[] values = UnlCore.decodeInto("6gkzwgjz@5", new double[6]);
+        Assert.assertArrayEquals(values, new double[]{
+                -25.38262, -49.26561, -25.382537841796875, -49.26544189453125, -25.382709503173828, -49.265785217285156
+        }, 0);
+
+        /* matches decode and its BigDecimal rounding */
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; i++) {
+            int precision = 1 + random.nextInt(UnlCore.MAX_KEY_PRECISION);
+            String locationId = UnlCore.encode(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180, precision,
+                    new Elevation(random.nextInt(20) - 10, random.nextBoolean() ? "floor" : "heightincm"));
+            PointWithElevation decoded = UnlCore.decode(locationId);
+            Bounds bounds = decoded.getBounds();
+
+            Assert.assertEquals(UnlCore.decodeInto(locationId, cell).toPointWithElevation(), decoded);
+            Assert.assertEquals(decoded.getCoordinates().getLat(), roundCentre(bounds.getS(), bounds.getN()), 0);
+            Assert.assertEquals(decoded.getCoordinates().getLon(), roundCentre(bounds.getW(), bounds.getE()), 0);
+        }
+    }
+
+    private static double roundCentre(double min, double max) {
+        return new BigDecimal((min + max) / 2)
+                .setScale((int) Math.floor(2 - Math.log(max - min) / Math.log(10)), RoundingMode.HALF_DOWN)
+                .doubleValue();
+    }
+
+    @Test
+    public void neighbourKeysTest() {
+        /* fetches neighbour keys */
+        long[] keys = UnlCore.neighbours(UnlCore.fromLocationId("ezzz"));
+        Assert.assertEquals(UnlCore.toLocationId(keys[Neighbours.N]), "gbpb");
+        Assert.assertEquals(UnlCore.toLocationId(keys[Neighbours.NE]), "u000");
+        Assert.assertEquals(UnlCore.toLocationId(keys[Neighbours.SW]), "ezzw");
+        Assert.assertEquals(UnlCore.toLocationId(keys[Neighbours.NW]), "gbp8");
+
+        /* wraps around the antimeridian */
+        Neighbours antimeridian = UnlCore.neighbours(UnlCore.encode(10, -179.99, 6));
+        Assert.assertEquals(antimeridian.getW(), UnlCore.encode(10, 179.99, 6));
+        Assert.assertEquals(antimeridian.getSw(), UnlCore.adjacent(UnlCore.encode(10, 179.99, 6), "s"));
+
+        /* clamps at the north pole */
+        Assert.assertEquals(UnlCore.neighbours("zzzz@2"),
+                new Neighbours("zzzz@2", "bpbp@2", "bpbp@2", "bpbn@2", "zzzy@2", "zzzw@2", "zzzx@2", "zzzx@2"));
+
+        /* clamps at the south pole */
+        Assert.assertEquals(UnlCore.neighbours("0000"),
+                new Neighbours("0001", "0003", "0002", "0002", "0000", "pbpb", "pbpb", "pbpc"));
+
+        /* matches adjacent cells away from the poles */
+        Random random = new Random(11);
+        long[] buffer = new long[8];
+        for (int i = 0; i < 2000; i++) {
+            String locationId = UnlCore.encode(random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180, 1 + random.nextInt(12));
+            Bounds bounds = UnlCore.bounds(locationId);
+            if (bounds.getN() == 90 || bounds.getS() == -90) {
+                continue;
+            }
+            Neighbours neighbours = UnlCore.neighbours(locationId);
+
+            Assert.assertEquals(neighbours.getN(), UnlCore.adjacent(locationId, "n"));
+            Assert.assertEquals(neighbours.getSe(), UnlCore.adjacent(UnlCore.adjacent(locationId, "s"), "e"));
+            Assert.assertEquals(neighbours.getW(), UnlCore.adjacent(locationId, "w"));
+            Assert.assertEquals(UnlCore.toLocationId(UnlCore.neighbours(UnlCore.fromLocationId(locationId), buffer)[Neighbours.NW]),
+                    UnlCore.adjacent(UnlCore.adjacent(locationId, "n"), "w"));
+        }
+    }
+
+    @Test
+    public void ringTest() {
+        long key = UnlCore.fromLocationId("u4pruy");
+
+        /* ring 0 is the centre cell */
+        Assert.assertArrayEquals(UnlCore.ring(key, 0).toArray(), new long[]{key});
+
+        /* ring 1 holds the neighbours */
+        long[] ring = UnlCore.ring("u4pruy", 1).sorted().toArray();
+        long[] neighbours = UnlCore.neighbours(key);
+        Arrays.sort(neighbours);
+        Assert.assertArrayEquals(ring, neighbours);
+
+        /* rings grow by 8 cells */
+        Assert.assertEquals(UnlCore.ring(key, 300).count(), 2400);
+        Assert.assertEquals(UnlCore.disk(key, 300).distinct().count(), 601 * 601);
+        Assert.assertEquals(UnlCore.disk(key, 300).toArray().length, 601 * 601);
+
+        /* disk cells are at most k columns and rows away */
+        Bounds centre = UnlCore.boundsOf(key);
+        double height = centre.getN() - centre.getS();
+        double width = centre.getE() - centre.getW();
+        UnlCore.disk(key, 3).forEach(cell -> {
+            Bounds bounds = UnlCore.boundsOf(cell);
+            Assert.assertTrue(Math.abs(bounds.getS() - centre.getS()) <= 3 * height);
+            Assert.assertTrue(Math.abs(bounds.getW() - centre.getW()) <= 3 * width);
+        });
+
+        /* stops at the poles and wraps around the antimeridian without duplicates */
+        long polar = UnlCore.encodeToLong(89.99, 179.99, 2);
+        long[] disk = UnlCore.disk(polar, 5).toArray();
+        Assert.assertEquals(LongStream.of(disk).distinct().count(), disk.length);
+        Assert.assertEquals(disk.length, 6 * 11);
+        Assert.assertTrue(LongStream.of(disk).anyMatch(cell -> UnlCore.boundsOf(cell).getW() == -180));
+
+        /* covers the whole world once at large k */
+        Assert.assertEquals(UnlCore.disk(UnlCore.fromLocationId("u"), 100).distinct().count(), 32);
+        Assert.assertEquals(UnlCore.disk(UnlCore.fromLocationId("u"), 100).count(), 32);
+    }
+
+    @Test
+    public void coverTest() {
+        Bounds bounds = new Bounds(46.77227194246396, 23.59560827603795, 46.77210936378606, 23.595436614661565);
+
+        /* covers bounds with cells of mixed precision */
+        long[] cells = UnlCore.cover(bounds, 9, Integer.MAX_VALUE);
+        Assert.assertTrue(cells.length > 0);
+        for (int i = 1; i < cells.length; i++) {
+            Assert.assertTrue(cells[i - 1] < cells[i]);
+        }
+
+        /* every point inside the bounds encodes into a covering cell */
+        Random random = new Random(5);
+        for (int i = 0; i < 1000; i++) {
+            double lat = bounds.getS() + random.nextDouble() * (bounds.getN() - bounds.getS());
+            double lon = bounds.getW() + random.nextDouble() * (bounds.getE() - bounds.getW());
+            Assert.assertTrue(coveredBy(cells, UnlCore.encodeToLong(lat, lon, 9)));
+        }
+
+        /* keeps whole cells instead of their 32 children */
+        Assert.assertArrayEquals(UnlCore.cover(UnlCore.bounds("u4pr"), 9, 100), new long[]{UnlCore.fromLocationId("u4pr")});
+        long[] mixed = UnlCore.cover(new Bounds(58, 11, 57, 9), 6, Integer.MAX_VALUE);
+        Assert.assertTrue(LongStream.of(mixed).anyMatch(cell -> UnlCore.precisionOf(cell) < 6));
+        Assert.assertTrue(LongStream.of(mixed).anyMatch(cell -> UnlCore.precisionOf(cell) == 6));
+
+        /* stays within the cell budget */
+        Assert.assertTrue(UnlCore.cover(new Bounds(58, 11, 57, 9), 12, 50).length <= 50);
+
+        /* covers bounds crossing the antimeridian */
+        long[] antimeridian = UnlCore.cover(new Bounds(10, -170, 0, 170), 4, Integer.MAX_VALUE);
+        Assert.assertTrue(coveredBy(antimeridian, UnlCore.encodeToLong(5, 175, 4)));
+        Assert.assertTrue(coveredBy(antimeridian, UnlCore.encodeToLong(5, -175, 4)));
+        Assert.assertFalse(coveredBy(antimeridian, UnlCore.encodeToLong(5, 0, 4)));
+    }
+
+    private static boolean coveredBy(long[] cells, long key) {
+        String locationId = UnlCore.toLocationId(key);
+        for (long cell : cells) {
+            if (locationId.startsWith(UnlCore.toLocationId(cell))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void coverCircleTest() {
+        /* covers the cell of the centre */
+        long[] cells = UnlCore.coverCircle(52.37686, 4.90065, 0, 9);
+        Assert.assertArrayEquals(cells, new long[]{UnlCore.encodeToLong(52.37686, 4.90065, 9)});
+
+        Random random = new Random(9);
+        for (double[] circle : new double[][]{{52.37686, 4.90065, 50}, {78.22, 15.65, 300}, {-33.86, 151.2, 120}, {0, 179.9995, 200}}) {
+            cells = UnlCore.coverCircle(circle[0], circle[1], circle[2], 9);
+
+            /* returns every cell with points inside the circle */
+            for (int i = 0; i < 2000; i++) {
+                double bearing = random.nextDouble() * 2 * Math.PI;
+                double distance = Math.sqrt(random.nextDouble()) * circle[2] / 6371008.8;
+                double lat = Math.toRadians(circle[0]);
+                double pointLat = Math.asin(Math.sin(lat) * Math.cos(distance) + Math.cos(lat) * Math.sin(distance) * Math.cos(bearing));
+                double pointLon = Math.toRadians(circle[1]) + Math.atan2(Math.sin(bearing) * Math.sin(distance) * Math.cos(lat),
+                        Math.cos(distance) - Math.sin(lat) * Math.sin(pointLat));
+                long key = UnlCore.encodeToLong(Math.toDegrees(pointLat), (Math.toDegrees(pointLon) + 540) % 360 - 180, 9);
+                Assert.assertTrue(Arrays.binarySearch(cells, key) >= 0);
+            }
+
+            /* returns only cells close to the circle */
+            for (long cell : cells) {
+                Bounds bounds = UnlCore.boundsOf(cell);
+                double lat = Math.max(bounds.getS(), Math.min(bounds.getN(), circle[0]));
+                double centreLon = bounds.getE() < 0 && circle[1] > 0 ? circle[1] - 360 : circle[1];
+                double lon = Math.max(bounds.getW(), Math.min(bounds.getE(), centreLon));
+                Assert.assertTrue(haversine(circle[0], centreLon, lat, lon) <= circle[2] * 1.01);
+            }
+        }
+    }
+
+    @Test
+    public void polyfillTest() {
+        /* a cell's outline is filled with the cell itself */
+        Bounds cell = UnlCore.bounds("u4pru");
+        double[][] outline = {{cell.getW(), cell.getS()}, {cell.getE(), cell.getS()}, {cell.getE(), cell.getN()}, {cell.getW(), cell.getN()}};
+        Assert.assertArrayEquals(UnlCore.polyfill(outline, 5), new long[]{UnlCore.fromLocationId("u4pru")});
+        Assert.assertEquals(UnlCore.polyfill(outline, 7).length, 32 * 32);
+
+        /* matches a centre-by-centre scan, for a concave polygon and a polygon with a hole */
+        double[][][][] polygons = {
+                {{{4.80, 52.30}, {5.00, 52.30}, {5.00, 52.34}, {4.86, 52.34}, {4.86, 52.42}, {4.80, 52.42}, {4.80, 52.30}}},
+                {{{-74.05, 40.60}, {-73.90, 40.62}, {-73.95, 40.80}, {-74.10, 40.75}}, {{-74.02, 40.66}, {-73.96, 40.68}, {-74.00, 40.72}}}
+        };
+        for (double[][][] polygon : polygons) {
+            for (int precision = 5; precision <= 7; precision++) {
+                long[] cells = UnlCore.polyfill(polygon, precision);
+                Assert.assertArrayEquals(cells, scanPolygon(polygon, precision));
+
+                /* streams the same cells */
+                long[] streamed = new long[cells.length + 1];
+                AtomicInteger count = new AtomicInteger();
+                UnlCore.polyfill(polygon, precision, ForkJoinPool.commonPool(),
+                        key -> streamed[count.getAndIncrement()] = key);
+                long[] sorted = Arrays.copyOf(streamed, count.get());
+                Arrays.sort(sorted);
+                Assert.assertArrayEquals(sorted, cells);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void polyfillRejectsDegeneratePolygonTest() {
+        UnlCore.polyfill(new double[][]{{4.8, 52.3}, {4.9, 52.3}}, 9);
+    }
+
+    private static long[] scanPolygon(double[][][] polygon, int precision) {
+        double s = 90, w = 180, n = -90, e = -180;
+        for (double[] position : polygon[0]) {
+            s = Math.min(s, position[1]);
+            n = Math.max(n, position[1]);
+            w = Math.min(w, position[0]);
+            e = Math.max(e, position[0]);
+        }
+        return Arrays.stream(RegionCoverer.fill(new BoundsRegion(new Bounds(n, e, s, w)), precision)).filter(key -> {
+            Bounds bounds = UnlCore.boundsOf(key);
+            double lat = (bounds.getN() + bounds.getS()) / 2;
+            double lon = (bounds.getE() + bounds.getW()) / 2;
+            boolean inside = false;
+            for (double[][] ring : polygon) {
+                for (int i = 0, j = ring.length - 1; i < ring.length; j = i++) {
+                    if ((ring[i][1] > lat) != (ring[j][1] > lat)
+                            && lon < ring[i][0] + (lat - ring[i][1]) * (ring[j][0] - ring[i][0]) / (ring[j][1] - ring[i][1])) {
+                        inside = !inside;
+                    }
+                }
+            }
+            return inside;
+        }).toArray();
+    }
+
+    @Test
+    public void compactTest() {
+        /* merges complete sibling groups, repeatedly */
+        long[] cells = UnlCore.uncompact(new long[]{UnlCore.fromLocationId("u4pr")}, 7);
+        Assert.assertEquals(cells.length, 32 * 32 * 32);
+        Assert.assertArrayEquals(UnlCore.compact(cells), new long[]{UnlCore.fromLocationId("u4pr")});
+
+        /* keeps incomplete groups and drops covered cells and duplicates */
+        Assert.assertEquals(UnlCore.compact(Arrays.asList("u4pru", "u4pr", "u4pruv", "u4p0", "u4p0", "u4p1")),
+                Arrays.asList("u4p0", "u4p1", "u4pr"));
+        long[] partial = Arrays.copyOf(UnlCore.uncompact(new long[]{UnlCore.fromLocationId("u4pr")}, 5), 31);
+        Assert.assertArrayEquals(UnlCore.compact(partial), partial);
+
+        /* round-trips random sets of mixed precisions */
+        Random random = new Random(11);
+        for (int n = 0; n < 50; n++) {
+            long[] keys = new long[random.nextInt(200) + 1];
+            for (int i = 0; i < keys.length; i++) {
+                String locationId = UnlCore.encode(52 + random.nextDouble() * 0.2, 4 + random.nextDouble() * 0.2, random.nextInt(4) + 3);
+                keys[i] = UnlCore.fromLocationId(locationId);
+            }
+            long[] expanded = UnlCore.uncompact(keys, 6);
+            long[] compacted = UnlCore.compact(expanded);
+            Assert.assertArrayEquals(UnlCore.compact(keys), compacted);
+            Assert.assertArrayEquals(UnlCore.uncompact(compacted, 6), expanded);
+            Assert.assertEquals(LongStream.of(expanded).distinct().count(), expanded.length);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uncompactRejectsFinerCellsTest() {
+        UnlCore.uncompact(Arrays.asList("u4pr", "u4pruy"), 5);
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.pow(Math.sin(dLat / 2), 2) + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * 6371008.8 * Math.asin(Math.sqrt(h));
+    }
 }